@@ -25,9 +25,12 @@ javac -d build/classes \
       -cp "lib/*" \
       -sourcepath src/main/java \
       src/main/java/com/onlineshopping/*.java \
+      src/main/java/com/onlineshopping/bench/*.java \
       src/main/java/com/onlineshopping/model/*.java \
       src/main/java/com/onlineshopping/database/*.java \
+      src/main/java/com/onlineshopping/catalog/*.java \
       src/main/java/com/onlineshopping/dbquery/*.java \
+      src/main/java/com/onlineshopping/server/*.java \
       src/main/java/com/onlineshopping/service/*.java \
       src/main/java/com/onlineshopping/ui/*.java \
       src/main/java/com/onlineshopping/util/*.java
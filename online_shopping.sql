@@ -9,7 +9,13 @@ CREATE TABLE IF NOT EXISTS products (
     price DECIMAL(10, 2) NOT NULL,
     stock INT NOT NULL DEFAULT 0,
     category VARCHAR(100),
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_products_category (category, product_id),
+    INDEX idx_products_price (price, product_id),
+    INDEX idx_products_name (name, product_id),
+    INDEX idx_products_created (created_at, product_id),
+    INDEX idx_products_updated (updated_at, product_id)
 );
 
 -- Create customers table
@@ -27,7 +33,8 @@ CREATE TABLE IF NOT EXISTS orders (
     order_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     status VARCHAR(20) NOT NULL DEFAULT 'ON_SHOPPING',
     total_amount DECIMAL(10, 2) DEFAULT 0.0,
-    FOREIGN KEY (customer_id) REFERENCES customers(customer_id) ON DELETE CASCADE
+    FOREIGN KEY (customer_id) REFERENCES customers(customer_id) ON DELETE CASCADE,
+    INDEX idx_orders_customer_date (customer_id, order_date, order_id)
 );
 
 -- Create order_items table
@@ -73,326 +80,6 @@ INSERT INTO products (name, description, price, stock, category) VALUES
 ('Mountain Bike', '21-speed mountain bicycle', 599.99, 15, 'Sports & Outdoors'),
 ('Water Bottle', 'Insulated stainless steel bottle', 19.99, 200, 'Sports & Outdoors');
 
-DELIMITER $$
-
-CREATE PROCEDURE add_product(
-    IN p_name        VARCHAR(255),
-    IN p_description TEXT,
-    IN p_price       DECIMAL(10,2),
-    IN p_stock       INT,
-    IN p_category    VARCHAR(255),
-    OUT p_product_id INT
-)
-BEGIN
-    INSERT INTO products (name, description, price, stock, category)
-    VALUES (p_name, p_description, p_price, p_stock, p_category);
-
-    SELECT LAST_INSERT_ID() INTO p_product_id;
-END $$
-
-
-CREATE PROCEDURE remove_product (
-    IN p_product_id INT
-)
-BEGIN
-    DELETE FROM products
-    WHERE product_id = p_product_id;
-END $$
-
-
-CREATE PROCEDURE update_product (
-    IN p_product_id  INT,
-    IN p_name        VARCHAR(255),
-    IN p_description TEXT,
-    IN p_price       DECIMAL(10,2),
-    IN p_stock       INT,
-    IN p_category    VARCHAR(255)
-)
-BEGIN
-    UPDATE products
-    SET name        = p_name,
-        description = p_description,
-        price       = p_price,
-        stock       = p_stock,
-        category    = p_category
-    WHERE product_id = p_product_id;
-END $$
-
-
-CREATE PROCEDURE get_product_by_id (
-    IN p_product_id INT
-)
-BEGIN
-    SELECT product_id, name, description, price, stock, category
-    FROM products
-    WHERE product_id = p_product_id;
-END $$
-
-
-CREATE PROCEDURE get_all_products ()
-BEGIN
-    SELECT product_id, name, description, price, stock, category
-    FROM products
-    ORDER BY name;
-END $$
-
-
-CREATE PROCEDURE search_products (
-    IN p_search_term VARCHAR(255)
-)
-BEGIN
-    DECLARE v_pattern VARCHAR(261);
-    SET v_pattern = CONCAT('%', p_search_term, '%');
-
-    SELECT product_id, name, description, price, stock, category
-    FROM products
-    WHERE name        LIKE v_pattern
-       OR description LIKE v_pattern
-       OR category    LIKE v_pattern
-    ORDER BY name;
-END $$
-
-
-CREATE PROCEDURE update_stock (
-    IN p_product_id INT,
-    IN p_new_stock  INT
-)
-BEGIN
-    UPDATE products
-    SET stock = p_new_stock
-    WHERE product_id = p_product_id;
-END $$
-
-
-CREATE PROCEDURE add_customer (
-    IN  p_username VARCHAR(50),
-    IN  p_password VARCHAR(255),
-    OUT p_customer_id INT
-)
-BEGIN
-    INSERT INTO customers (username, password)
-    VALUES (p_username, p_password);
-
-    SELECT LAST_INSERT_ID() INTO p_customer_id;
-END $$
-
-
-CREATE PROCEDURE update_customer (
-    IN p_customer_id INT,
-    IN p_username    VARCHAR(50)
-)
-BEGIN
-    UPDATE customers
-    SET username = p_username
-    WHERE customer_id = p_customer_id;
-END $$
-
-
-CREATE PROCEDURE update_password (
-    IN p_customer_id INT,
-    IN p_new_password VARCHAR(255)
-)
-BEGIN
-    UPDATE customers
-    SET password = p_new_password
-    WHERE customer_id = p_customer_id;
-END $$
-
-CREATE PROCEDURE get_customer_by_username (
-    IN p_username VARCHAR(50)
-)
-BEGIN
-    SELECT customer_id, username, password
-    FROM customers
-    WHERE username = p_username;
-END $$
-
-CREATE PROCEDURE customer_exists (
-    IN p_username VARCHAR(50)
-)
-BEGIN
-    SELECT CASE
-        WHEN EXISTS (SELECT 1 FROM customers WHERE username = p_username)
-        THEN 1
-        ELSE 0
-    END AS exists_flag;
-END $$
-
-CREATE PROCEDURE add_order (
-    IN  p_customer_id INT,
-    IN  p_order_date  DATETIME,
-    IN  p_status      VARCHAR(20),
-    IN  p_total_amount DECIMAL(10,2),
-    OUT p_order_id    INT
-)
-BEGIN
-    INSERT INTO orders (customer_id, order_date, status, total_amount)
-    VALUES (p_customer_id,
-            NOW(),
-            p_status,
-            p_total_amount);
-
-    SET p_order_id = LAST_INSERT_ID();
-END $$
-
-
-CREATE PROCEDURE update_order_status (
-    IN p_order_id INT,
-    IN p_status   VARCHAR(20)
-)
-BEGIN
-    UPDATE orders
-    SET status = p_status
-    WHERE order_id = p_order_id;
-END $$
-
-
-CREATE PROCEDURE update_order_total (
-    IN p_order_id   INT,
-    IN p_total_amt  DECIMAL(10,2)
-)
-BEGIN
-    UPDATE orders
-    SET total_amount = p_total_amt
-    WHERE order_id = p_order_id;
-END $$
-
-
-CREATE PROCEDURE get_order_by_id (
-    IN p_order_id INT
-)
-BEGIN
-    SELECT order_id,
-           customer_id,
-           order_date,
-           status,
-           total_amount
-    FROM orders
-    WHERE order_id = p_order_id;
-END $$
-
-
-CREATE PROCEDURE get_orders_by_customer_id (
-    IN p_customer_id INT
-)
-BEGIN
-    SELECT order_id,
-           customer_id,
-           order_date,
-           status,
-           total_amount
-    FROM orders
-    WHERE customer_id = p_customer_id
-    ORDER BY order_date DESC;
-END $$
-
-
-CREATE PROCEDURE get_active_order_by_customer_id (
-    IN p_customer_id INT
-)
-BEGIN
-    SELECT order_id,
-           customer_id,
-           order_date,
-           status,
-           total_amount
-    FROM orders
-    WHERE customer_id = p_customer_id
-      AND status = 'ON_SHOPPING'
-    ORDER BY order_date DESC
-    LIMIT 1;
-END $$
-
-
-CREATE PROCEDURE add_order_item (
-    IN  p_order_id      INT,
-    IN  p_product_id    INT,
-    IN  p_product_name  VARCHAR(255),
-    IN  p_price         DECIMAL(10,2),
-    IN  p_quantity      INT,
-    OUT p_order_item_id INT
-)
-BEGIN
-    INSERT INTO order_items (order_id, product_id, product_name, price, quantity)
-    VALUES (p_order_id, p_product_id, p_product_name, p_price, p_quantity);
-
-    SET p_order_item_id = LAST_INSERT_ID();
-END $$
-
-CREATE PROCEDURE get_order_items (
-    IN p_order_id INT
-)
-BEGIN
-    SELECT order_item_id,
-           order_id,
-           product_id,
-           product_name,
-           price,
-           quantity
-    FROM order_items
-    WHERE order_id = p_order_id;
-END $$
-
-
-CREATE PROCEDURE update_order_item_quantity (
-    IN p_order_item_id INT,
-    IN p_quantity      INT
-)
-BEGIN
-    UPDATE order_items
-    SET quantity = p_quantity
-    WHERE order_item_id = p_order_item_id;
-END $$
-
-
-CREATE PROCEDURE remove_item_from_order (
-    IN p_order_id   INT,
-    IN p_product_id INT
-)
-BEGIN
-    DELETE FROM order_items
-    WHERE order_id = p_order_id
-      AND product_id = p_product_id;
-END $$
-
-
-CREATE PROCEDURE add_item_to_order (
-    IN  p_order_id      INT,
-    IN  p_product_id    INT,
-    IN  p_product_name  VARCHAR(255),
-    IN  p_price         DECIMAL(10,2),
-    IN  p_quantity      INT,
-    OUT p_order_item_id INT
-)
-BEGIN
-    DECLARE v_item_id      INT;
-    DECLARE v_old_quantity INT;
-
-    DECLARE CONTINUE HANDLER FOR NOT FOUND
-        SET v_item_id = NULL;
-
-    -- Check if item already exists
-    SELECT order_item_id, quantity
-      INTO v_item_id, v_old_quantity
-    FROM order_items
-    WHERE order_id = p_order_id
-      AND product_id = p_product_id
-    LIMIT 1;
-
-    IF v_item_id IS NULL THEN
-        -- Insert new item
-        INSERT INTO order_items (order_id, product_id, product_name, price, quantity)
-        VALUES (p_order_id, p_product_id, p_product_name, p_price, p_quantity);
-
-        SET p_order_item_id = LAST_INSERT_ID();
-    ELSE
-        -- Update quantity
-        UPDATE order_items
-        SET quantity = v_old_quantity + p_quantity
-        WHERE order_item_id = v_item_id;
-
-        SET p_order_item_id = v_item_id;
-    END IF;
-END $$
-
-DELIMITER ;
+-- The stored procedures are kept in their own file, shared with online_shopping_upgrade.sql;
+-- the path is relative to the directory mysql is started from
+SOURCE online_shopping_procedures.sql;
@@ -0,0 +1,833 @@
+-- Every stored procedure the application calls. Each one is dropped and re-created, so the
+-- file can be applied again at any time: online_shopping.sql sources it for a new database
+-- and online_shopping_upgrade.sql for an existing one.
+USE online_shopping;
+
+DELIMITER $$
+
+DROP PROCEDURE IF EXISTS add_product $$
+CREATE PROCEDURE add_product(
+    IN p_name        VARCHAR(255),
+    IN p_description TEXT,
+    IN p_price       DECIMAL(10,2),
+    IN p_stock       INT,
+    IN p_category    VARCHAR(255),
+    OUT p_product_id INT
+)
+BEGIN
+    INSERT INTO products (name, description, price, stock, category)
+    VALUES (p_name, p_description, p_price, p_stock, p_category);
+
+    SELECT LAST_INSERT_ID() INTO p_product_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS remove_product $$
+CREATE PROCEDURE remove_product (
+    IN p_product_id INT
+)
+BEGIN
+    DELETE FROM products
+    WHERE product_id = p_product_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS update_product $$
+CREATE PROCEDURE update_product (
+    IN p_product_id  INT,
+    IN p_name        VARCHAR(255),
+    IN p_description TEXT,
+    IN p_price       DECIMAL(10,2),
+    IN p_stock       INT,
+    IN p_category    VARCHAR(255)
+)
+BEGIN
+    UPDATE products
+    SET name        = p_name,
+        description = p_description,
+        price       = p_price,
+        stock       = p_stock,
+        category    = p_category
+    WHERE product_id = p_product_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_product_by_id $$
+CREATE PROCEDURE get_product_by_id (
+    IN p_product_id INT
+)
+BEGIN
+    SELECT product_id, name, description, price, stock, category
+    FROM products
+    WHERE product_id = p_product_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_products_by_ids $$
+-- Several products by primary key, with the ids passed as a JSON array such as '[3, 17, 42]'
+CREATE PROCEDURE get_products_by_ids (
+    IN p_product_ids JSON
+)
+BEGIN
+    SELECT p.product_id, p.name, p.description, p.price, p.stock, p.category
+    FROM JSON_TABLE(p_product_ids, '$[*]' COLUMNS (product_id INT PATH '$')) AS ids
+    JOIN products p ON p.product_id = ids.product_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_stock_by_ids $$
+-- Current stock of several products, ids passed as for get_products_by_ids; used to refresh cached rows
+CREATE PROCEDURE get_stock_by_ids (
+    IN p_product_ids JSON
+)
+BEGIN
+    SELECT p.product_id, p.stock
+    FROM JSON_TABLE(p_product_ids, '$[*]' COLUMNS (product_id INT PATH '$')) AS ids
+    JOIN products p ON p.product_id = ids.product_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_all_products $$
+CREATE PROCEDURE get_all_products ()
+BEGIN
+    SELECT product_id, name, description, price, stock, category
+    FROM products
+    ORDER BY name;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_products_page $$
+-- Keyset page of the catalog in product_id order; pass 0 for the first page
+CREATE PROCEDURE get_products_page (
+    IN p_after_id INT,
+    IN p_limit    INT
+)
+BEGIN
+    SELECT product_id, name, description, price, stock, category
+    FROM products
+    WHERE product_id > p_after_id
+    ORDER BY product_id
+    LIMIT p_limit;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_products_page_by_category $$
+-- Keyset page of one category in product_id order, served from idx_products_category
+CREATE PROCEDURE get_products_page_by_category (
+    IN p_category VARCHAR(100),
+    IN p_after_id INT,
+    IN p_limit    INT
+)
+BEGIN
+    SELECT product_id, name, description, price, stock, category
+    FROM products
+    WHERE category = p_category
+      AND product_id > p_after_id
+    ORDER BY product_id
+    LIMIT p_limit;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_product_popularity $$
+-- Units sold per product across placed orders, used to rank autocomplete suggestions
+CREATE PROCEDURE get_product_popularity ()
+BEGIN
+    SELECT oi.product_id, SUM(oi.quantity) AS units_sold
+    FROM order_items oi
+    JOIN orders o ON o.order_id = oi.order_id
+    WHERE o.status = 'DONE'
+    GROUP BY oi.product_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_catalog_watermark $$
+-- Newest updated_at in the catalog; a snapshot taken after reading this includes every older change
+CREATE PROCEDURE get_catalog_watermark ()
+BEGIN
+    SELECT MAX(updated_at) AS watermark
+    FROM products;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_products_changed_since $$
+-- Products added or changed since p_since, used to bring a catalog snapshot up to date
+CREATE PROCEDURE get_products_changed_since (
+    IN p_since TIMESTAMP
+)
+BEGIN
+    SELECT product_id, name, description, price, stock, category
+    FROM products
+    WHERE updated_at >= p_since;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_product_ids $$
+-- Every live product id, used to drop products deleted since a snapshot was written
+CREATE PROCEDURE get_product_ids ()
+BEGIN
+    SELECT product_id
+    FROM products
+    ORDER BY product_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_all_usernames $$
+-- Every username, used to build the registration username filter
+CREATE PROCEDURE get_all_usernames ()
+BEGIN
+    SELECT username
+    FROM customers;
+END $$
+
+
+DROP PROCEDURE IF EXISTS search_products $$
+CREATE PROCEDURE search_products (
+    IN p_search_term VARCHAR(255)
+)
+BEGIN
+    DECLARE v_pattern VARCHAR(261);
+    SET v_pattern = CONCAT('%', p_search_term, '%');
+
+    SELECT product_id, name, description, price, stock, category
+    FROM products
+    WHERE name        LIKE v_pattern
+       OR description LIKE v_pattern
+       OR category    LIKE v_pattern
+    ORDER BY name;
+END $$
+
+
+DROP PROCEDURE IF EXISTS update_stock $$
+CREATE PROCEDURE update_stock (
+    IN p_product_id INT,
+    IN p_new_stock  INT
+)
+BEGIN
+    UPDATE products
+    SET stock = p_new_stock
+    WHERE product_id = p_product_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS adjust_category_prices $$
+-- Set-based re-price of one category, e.g. p_percent = 10 raises prices by 10%
+CREATE PROCEDURE adjust_category_prices (
+    IN  p_category VARCHAR(100),
+    IN  p_percent  DECIMAL(7, 2),
+    OUT p_updated  INT
+)
+BEGIN
+    UPDATE products
+    SET price = ROUND(price * (100 + p_percent) / 100, 2)
+    WHERE category = p_category;
+
+    SET p_updated = ROW_COUNT();
+END $$
+
+
+DROP PROCEDURE IF EXISTS add_customer $$
+CREATE PROCEDURE add_customer (
+    IN  p_username VARCHAR(50),
+    IN  p_password VARCHAR(255),
+    OUT p_customer_id INT
+)
+BEGIN
+    INSERT INTO customers (username, password)
+    VALUES (p_username, p_password);
+
+    SELECT LAST_INSERT_ID() INTO p_customer_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS update_customer $$
+CREATE PROCEDURE update_customer (
+    IN p_customer_id INT,
+    IN p_username    VARCHAR(50)
+)
+BEGIN
+    UPDATE customers
+    SET username = p_username
+    WHERE customer_id = p_customer_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS update_password $$
+CREATE PROCEDURE update_password (
+    IN p_customer_id INT,
+    IN p_new_password VARCHAR(255)
+)
+BEGIN
+    UPDATE customers
+    SET password = p_new_password
+    WHERE customer_id = p_customer_id;
+END $$
+
+DROP PROCEDURE IF EXISTS get_customer_by_username $$
+CREATE PROCEDURE get_customer_by_username (
+    IN p_username VARCHAR(50)
+)
+BEGIN
+    SELECT customer_id, username, password
+    FROM customers
+    WHERE username = p_username;
+END $$
+
+DROP PROCEDURE IF EXISTS customer_exists $$
+CREATE PROCEDURE customer_exists (
+    IN p_username VARCHAR(50)
+)
+BEGIN
+    SELECT CASE
+        WHEN EXISTS (SELECT 1 FROM customers WHERE username = p_username)
+        THEN 1
+        ELSE 0
+    END AS exists_flag;
+END $$
+
+DROP PROCEDURE IF EXISTS add_order $$
+CREATE PROCEDURE add_order (
+    IN  p_customer_id INT,
+    IN  p_order_date  DATETIME,
+    IN  p_status      VARCHAR(20),
+    IN  p_total_amount DECIMAL(10,2),
+    OUT p_order_id    INT
+)
+BEGIN
+    INSERT INTO orders (customer_id, order_date, status, total_amount)
+    VALUES (p_customer_id,
+            NOW(),
+            p_status,
+            p_total_amount);
+
+    SET p_order_id = LAST_INSERT_ID();
+END $$
+
+
+DROP PROCEDURE IF EXISTS update_order_status $$
+CREATE PROCEDURE update_order_status (
+    IN p_order_id INT,
+    IN p_status   VARCHAR(20)
+)
+BEGIN
+    UPDATE orders
+    SET status = p_status
+    WHERE order_id = p_order_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS update_order_total $$
+CREATE PROCEDURE update_order_total (
+    IN p_order_id   INT,
+    IN p_total_amt  DECIMAL(10,2)
+)
+BEGIN
+    UPDATE orders
+    SET total_amount = p_total_amt
+    WHERE order_id = p_order_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_order_by_id $$
+CREATE PROCEDURE get_order_by_id (
+    IN p_order_id INT
+)
+BEGIN
+    SELECT order_id,
+           customer_id,
+           order_date,
+           status,
+           total_amount
+    FROM orders
+    WHERE order_id = p_order_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_orders_by_customer_id $$
+CREATE PROCEDURE get_orders_by_customer_id (
+    IN p_customer_id INT
+)
+BEGIN
+    SELECT order_id,
+           customer_id,
+           order_date,
+           status,
+           total_amount
+    FROM orders
+    WHERE customer_id = p_customer_id
+    ORDER BY order_date DESC;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_orders_with_items_by_customer_id $$
+-- One row per order item (or one row with NULL item columns for an empty order),
+-- grouped by order so the caller can assemble orders in a single pass
+CREATE PROCEDURE get_orders_with_items_by_customer_id (
+    IN p_customer_id INT
+)
+BEGIN
+    SELECT o.order_id,
+           o.customer_id,
+           o.order_date,
+           o.status,
+           o.total_amount,
+           i.order_item_id,
+           i.product_id,
+           i.product_name,
+           i.price,
+           i.quantity
+    FROM orders o
+    LEFT JOIN order_items i ON i.order_id = o.order_id
+    WHERE o.customer_id = p_customer_id
+    ORDER BY o.order_date DESC, o.order_id DESC, i.order_item_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_orders_page_by_customer_id $$
+-- Keyset page of a customer's orders (newest first) with their items. Pass NULL cursor
+-- values for the first page; otherwise only orders strictly older than
+-- (p_before_date, p_before_id) are returned.
+CREATE PROCEDURE get_orders_page_by_customer_id (
+    IN p_customer_id INT,
+    IN p_before_date DATETIME,
+    IN p_before_id   INT,
+    IN p_limit       INT
+)
+BEGIN
+    SELECT o.order_id,
+           o.customer_id,
+           o.order_date,
+           o.status,
+           o.total_amount,
+           i.order_item_id,
+           i.product_id,
+           i.product_name,
+           i.price,
+           i.quantity
+    FROM (
+        SELECT order_id, customer_id, order_date, status, total_amount
+        FROM orders
+        WHERE customer_id = p_customer_id
+          AND (p_before_id IS NULL
+               OR order_date < p_before_date
+               OR (order_date = p_before_date AND order_id < p_before_id))
+        ORDER BY order_date DESC, order_id DESC
+        LIMIT p_limit
+    ) o
+    LEFT JOIN order_items i ON i.order_id = o.order_id
+    ORDER BY o.order_date DESC, o.order_id DESC, i.order_item_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_order_summaries_page_by_customer_id $$
+-- Same keyset paging as get_orders_page_by_customer_id, but returns one row per order
+-- with the number of item lines counted in SQL instead of the item rows themselves
+CREATE PROCEDURE get_order_summaries_page_by_customer_id (
+    IN p_customer_id INT,
+    IN p_before_date DATETIME,
+    IN p_before_id   INT,
+    IN p_limit       INT
+)
+BEGIN
+    SELECT o.order_id,
+           o.order_date,
+           o.status,
+           o.total_amount,
+           (SELECT COUNT(*) FROM order_items i WHERE i.order_id = o.order_id) AS item_count
+    FROM orders o
+    WHERE o.customer_id = p_customer_id
+      AND (p_before_id IS NULL
+           OR o.order_date < p_before_date
+           OR (o.order_date = p_before_date AND o.order_id < p_before_id))
+    ORDER BY o.order_date DESC, o.order_id DESC
+    LIMIT p_limit;
+END $$
+
+
+DROP PROCEDURE IF EXISTS get_active_order_by_customer_id $$
+CREATE PROCEDURE get_active_order_by_customer_id (
+    IN p_customer_id INT
+)
+BEGIN
+    SELECT order_id,
+           customer_id,
+           order_date,
+           status,
+           total_amount
+    FROM orders
+    WHERE customer_id = p_customer_id
+      AND status = 'ON_SHOPPING'
+    ORDER BY order_date DESC
+    LIMIT 1;
+END $$
+
+
+DROP PROCEDURE IF EXISTS add_order_item $$
+CREATE PROCEDURE add_order_item (
+    IN  p_order_id      INT,
+    IN  p_product_id    INT,
+    IN  p_product_name  VARCHAR(255),
+    IN  p_price         DECIMAL(10,2),
+    IN  p_quantity      INT,
+    OUT p_order_item_id INT
+)
+BEGIN
+    INSERT INTO order_items (order_id, product_id, product_name, price, quantity)
+    VALUES (p_order_id, p_product_id, p_product_name, p_price, p_quantity);
+
+    SET p_order_item_id = LAST_INSERT_ID();
+END $$
+
+DROP PROCEDURE IF EXISTS get_order_items $$
+CREATE PROCEDURE get_order_items (
+    IN p_order_id INT
+)
+BEGIN
+    SELECT order_item_id,
+           order_id,
+           product_id,
+           product_name,
+           price,
+           quantity
+    FROM order_items
+    WHERE order_id = p_order_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS update_order_item_quantity $$
+CREATE PROCEDURE update_order_item_quantity (
+    IN p_order_item_id INT,
+    IN p_quantity      INT
+)
+BEGIN
+    UPDATE order_items
+    SET quantity = p_quantity
+    WHERE order_item_id = p_order_item_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS remove_item_from_order $$
+CREATE PROCEDURE remove_item_from_order (
+    IN p_order_id   INT,
+    IN p_product_id INT
+)
+BEGIN
+    DELETE FROM order_items
+    WHERE order_id = p_order_id
+      AND product_id = p_product_id;
+END $$
+
+
+DROP PROCEDURE IF EXISTS add_item_to_order $$
+CREATE PROCEDURE add_item_to_order (
+    IN  p_order_id      INT,
+    IN  p_product_id    INT,
+    IN  p_product_name  VARCHAR(255),
+    IN  p_price         DECIMAL(10,2),
+    IN  p_quantity      INT,
+    OUT p_order_item_id INT
+)
+BEGIN
+    DECLARE v_item_id      INT;
+    DECLARE v_old_quantity INT;
+
+    DECLARE CONTINUE HANDLER FOR NOT FOUND
+        SET v_item_id = NULL;
+
+    -- Check if item already exists
+    SELECT order_item_id, quantity
+      INTO v_item_id, v_old_quantity
+    FROM order_items
+    WHERE order_id = p_order_id
+      AND product_id = p_product_id
+    LIMIT 1;
+
+    IF v_item_id IS NULL THEN
+        -- Insert new item
+        INSERT INTO order_items (order_id, product_id, product_name, price, quantity)
+        VALUES (p_order_id, p_product_id, p_product_name, p_price, p_quantity);
+
+        SET p_order_item_id = LAST_INSERT_ID();
+    ELSE
+        -- Update quantity
+        UPDATE order_items
+        SET quantity = v_old_quantity + p_quantity
+        WHERE order_item_id = v_item_id;
+
+        SET p_order_item_id = v_item_id;
+    END IF;
+END $$
+
+
+DROP PROCEDURE IF EXISTS add_product_to_cart $$
+-- Whole add-to-cart click in one call: takes the stock if enough is left, finds or opens the
+-- customer's active order, upserts the line and refreshes the order total in one transaction.
+-- p_result: 0 = added, 1 = product not found, 2 = insufficient stock (p_stock holds what is
+-- available). On success the updated cart is returned in the get_orders_with_items shape.
+CREATE PROCEDURE add_product_to_cart (
+    IN  p_customer_id INT,
+    IN  p_product_id  INT,
+    IN  p_quantity    INT,
+    OUT p_result      INT,
+    OUT p_stock       INT
+)
+BEGIN
+    DECLARE v_customer_id INT;
+    DECLARE v_name        VARCHAR(255);
+    DECLARE v_price       DECIMAL(10,2);
+    DECLARE v_order_id    INT;
+    DECLARE v_item_id     INT;
+    DECLARE v_line_price  DECIMAL(10,2);
+
+    DECLARE CONTINUE HANDLER FOR NOT FOUND BEGIN END;
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        RESIGNAL;
+    END;
+
+    START TRANSACTION;
+
+    -- the customer row serialises this customer's cart calls: with no active order the lookup
+    -- below only takes gap locks, and two sessions would both insert an order and deadlock
+    SELECT customer_id
+      INTO v_customer_id
+    FROM customers
+    WHERE customer_id = p_customer_id
+    FOR UPDATE;
+
+    -- the order is locked before the product, the same order remove_product_from_cart and
+    -- cancel_active_order take their locks in, so concurrent cart calls cannot deadlock
+    SELECT order_id
+      INTO v_order_id
+    FROM orders
+    WHERE customer_id = p_customer_id
+      AND status = 'ON_SHOPPING'
+    ORDER BY order_date DESC
+    LIMIT 1
+    FOR UPDATE;
+
+    -- compare-and-decrement: the stock check and the decrement are one statement
+    UPDATE products
+    SET stock = stock - p_quantity
+    WHERE product_id = p_product_id
+      AND stock >= p_quantity;
+
+    IF ROW_COUNT() = 0 THEN
+        ROLLBACK;
+        SELECT stock INTO p_stock FROM products WHERE product_id = p_product_id;
+        SET p_result = IF(p_stock IS NULL, 1, 2);
+    ELSE
+        SELECT name, price, stock
+          INTO v_name, v_price, p_stock
+        FROM products
+        WHERE product_id = p_product_id;
+
+        IF v_order_id IS NULL THEN
+            INSERT INTO orders (customer_id, order_date, status, total_amount)
+            VALUES (p_customer_id, NOW(), 'ON_SHOPPING', 0.0);
+
+            SET v_order_id = LAST_INSERT_ID();
+        END IF;
+
+        SELECT order_item_id, price
+          INTO v_item_id, v_line_price
+        FROM order_items
+        WHERE order_id = v_order_id
+          AND product_id = p_product_id
+        LIMIT 1;
+
+        IF v_item_id IS NULL THEN
+            INSERT INTO order_items (order_id, product_id, product_name, price, quantity)
+            VALUES (v_order_id, p_product_id, v_name, v_price, p_quantity);
+
+            SET v_line_price = v_price;
+        ELSE
+            UPDATE order_items
+            SET quantity = quantity + p_quantity
+            WHERE order_item_id = v_item_id;
+        END IF;
+
+        -- an existing line keeps the price it was first added at
+        UPDATE orders
+        SET total_amount = total_amount + v_line_price * p_quantity
+        WHERE order_id = v_order_id;
+
+        COMMIT;
+        SET p_result = 0;
+
+        SELECT o.order_id,
+               o.customer_id,
+               o.order_date,
+               o.status,
+               o.total_amount,
+               i.order_item_id,
+               i.product_id,
+               i.product_name,
+               i.price,
+               i.quantity
+        FROM orders o
+        LEFT JOIN order_items i ON i.order_id = o.order_id
+        WHERE o.order_id = v_order_id
+        ORDER BY i.order_item_id;
+    END IF;
+END $$
+
+
+
+DROP PROCEDURE IF EXISTS remove_product_from_cart $$
+-- Removes a product's line from the customer's active order and puts its quantity back into
+-- stock in one transaction. p_removed_quantity is 0 when there was nothing to remove.
+CREATE PROCEDURE remove_product_from_cart (
+    IN  p_customer_id      INT,
+    IN  p_product_id       INT,
+    OUT p_removed_quantity INT
+)
+BEGIN
+    DECLARE v_order_id       INT;
+    DECLARE v_removed_amount DECIMAL(10,2);
+
+    DECLARE CONTINUE HANDLER FOR NOT FOUND BEGIN END;
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        RESIGNAL;
+    END;
+
+    SET p_removed_quantity = 0;
+
+    START TRANSACTION;
+
+    SELECT order_id
+      INTO v_order_id
+    FROM orders
+    WHERE customer_id = p_customer_id
+      AND status = 'ON_SHOPPING'
+    ORDER BY order_date DESC
+    LIMIT 1
+    FOR UPDATE;
+
+    IF v_order_id IS NOT NULL THEN
+        SELECT COALESCE(SUM(quantity), 0), COALESCE(SUM(price * quantity), 0)
+          INTO p_removed_quantity, v_removed_amount
+        FROM order_items
+        WHERE order_id = v_order_id
+          AND product_id = p_product_id;
+    END IF;
+
+    IF p_removed_quantity = 0 THEN
+        ROLLBACK;
+    ELSE
+        DELETE FROM order_items
+        WHERE order_id = v_order_id
+          AND product_id = p_product_id;
+
+        UPDATE products
+        SET stock = stock + p_removed_quantity
+        WHERE product_id = p_product_id;
+
+        UPDATE orders
+        SET total_amount = total_amount - v_removed_amount
+        WHERE order_id = v_order_id;
+
+        COMMIT;
+    END IF;
+END $$
+
+
+DROP PROCEDURE IF EXISTS cancel_active_order $$
+-- Cancels the customer's active order: every line's quantity goes back to products in one
+-- set-based UPDATE and the status change commits in the same transaction.
+-- p_order_id is NULL when the customer had no active order; otherwise the ids of the
+-- restocked products are returned so callers can refresh their caches.
+CREATE PROCEDURE cancel_active_order (
+    IN  p_customer_id INT,
+    OUT p_order_id    INT
+)
+BEGIN
+    DECLARE CONTINUE HANDLER FOR NOT FOUND BEGIN END;
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        RESIGNAL;
+    END;
+
+    START TRANSACTION;
+
+    SELECT order_id
+      INTO p_order_id
+    FROM orders
+    WHERE customer_id = p_customer_id
+      AND status = 'ON_SHOPPING'
+    ORDER BY order_date DESC
+    LIMIT 1
+    FOR UPDATE;
+
+    IF p_order_id IS NULL THEN
+        ROLLBACK;
+    ELSE
+        UPDATE products p
+        JOIN (SELECT product_id, SUM(quantity) AS quantity
+              FROM order_items
+              WHERE order_id = p_order_id
+              GROUP BY product_id) i ON i.product_id = p.product_id
+        SET p.stock = p.stock + i.quantity;
+
+        UPDATE orders
+        SET status = 'CANCELLED'
+        WHERE order_id = p_order_id;
+
+        COMMIT;
+
+        SELECT DISTINCT product_id
+        FROM order_items
+        WHERE order_id = p_order_id;
+    END IF;
+END $$
+
+
+DROP PROCEDURE IF EXISTS place_active_order $$
+-- Places the customer's active order: it is locked, checked to have items and marked DONE in
+-- one transaction, so two sessions placing or changing the same cart cannot both act on it.
+-- p_order_id is NULL when there was no active order with items; otherwise the quantity sold
+-- of each product is returned.
+CREATE PROCEDURE place_active_order (
+    IN  p_customer_id INT,
+    OUT p_order_id    INT
+)
+BEGIN
+    DECLARE CONTINUE HANDLER FOR NOT FOUND BEGIN END;
+    DECLARE EXIT HANDLER FOR SQLEXCEPTION
+    BEGIN
+        ROLLBACK;
+        RESIGNAL;
+    END;
+
+    START TRANSACTION;
+
+    SELECT order_id
+      INTO p_order_id
+    FROM orders
+    WHERE customer_id = p_customer_id
+      AND status = 'ON_SHOPPING'
+    ORDER BY order_date DESC
+    LIMIT 1
+    FOR UPDATE;
+
+    IF p_order_id IS NULL OR NOT EXISTS (SELECT 1 FROM order_items WHERE order_id = p_order_id) THEN
+        SET p_order_id = NULL;
+        ROLLBACK;
+    ELSE
+        UPDATE orders
+        SET status = 'DONE'
+        WHERE order_id = p_order_id;
+
+        COMMIT;
+
+        SELECT product_id, SUM(quantity) AS quantity
+        FROM order_items
+        WHERE order_id = p_order_id
+        GROUP BY product_id;
+    END IF;
+END $$
+
+DELIMITER ;
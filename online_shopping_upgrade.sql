@@ -0,0 +1,27 @@
+-- Brings a database created from an earlier online_shopping.sql up to date with the
+-- current schema. Run it once against the existing database, from this directory:
+--   mysql -u root -p online_shopping < online_shopping_upgrade.sql
+-- Only schema changes live here. The index and column changes fail if they were already
+-- applied; the procedures are re-created from online_shopping_procedures.sql, which can be re-run.
+USE online_shopping;
+
+-- order history pages, newest first, read from one index range
+CREATE INDEX idx_orders_customer_date ON orders (customer_id, order_date, order_id);
+
+-- per-category browse pages in product_id order
+CREATE INDEX idx_products_category ON products (category, product_id);
+
+-- price, name and newest sorts, keyset-paginated on (column, product_id)
+CREATE INDEX idx_products_price ON products (price, product_id);
+CREATE INDEX idx_products_name ON products (name, product_id);
+CREATE INDEX idx_products_created ON products (created_at, product_id);
+
+-- category counts are taken from the cached listing now
+DROP PROCEDURE IF EXISTS get_product_categories;
+
+-- existing rows get the upgrade time as updated_at, so the next catalog snapshot reconciles them
+ALTER TABLE products
+    ADD COLUMN updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    ADD INDEX idx_products_updated (updated_at, product_id);
+
+SOURCE online_shopping_procedures.sql;
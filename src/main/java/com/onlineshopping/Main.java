@@ -1,9 +1,29 @@
 package com.onlineshopping;
 
+import com.onlineshopping.server.ApiServer;
+import com.onlineshopping.service.ShoppingService;
 import com.onlineshopping.ui.ConsoleUI;
 
+import java.io.IOException;
+
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        // "--server [port]" serves the HTTP/JSON API instead of the console
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : ApiServer.DEFAULT_PORT;
+            ShoppingService shoppingService = new ShoppingService();
+            shoppingService.warmStartCatalog();
+            shoppingService.warmStartUsernameFilter();
+
+            ApiServer server = new ApiServer(shoppingService, port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop(5);
+                shoppingService.saveCatalogSnapshot();
+            }));
+            server.start();
+            return;
+        }
+
         // Start the main application
         ConsoleUI ui = new ConsoleUI();
         ui.start();
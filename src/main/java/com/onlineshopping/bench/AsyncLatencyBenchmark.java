@@ -0,0 +1,157 @@
+package com.onlineshopping.bench;
+
+import com.onlineshopping.database.DatabaseManager;
+import com.onlineshopping.dbquery.OrderDB;
+import com.onlineshopping.dbquery.ProductDB;
+import com.onlineshopping.model.Order;
+import com.onlineshopping.model.OrderItem;
+import com.onlineshopping.model.OrderSummary;
+import com.onlineshopping.model.Page;
+import com.onlineshopping.model.Product;
+import com.onlineshopping.model.RegistrationResult;
+import com.onlineshopping.service.AsyncShoppingService;
+import com.onlineshopping.service.Session;
+import com.onlineshopping.service.ShoppingService;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Screen load latency through ShoppingService versus AsyncShoppingService with several
+ * clients at once. The storefront is three independent reads, which the async facade runs
+ * in parallel, plus a read of the cart's products chained onto the cart; an order history page is one joined query either way, shown next to the
+ * summary-then-one-call-per-order fan-out the async facade used to do.
+ *
+ * Args: concurrent clients (default 8), requests per client (default 50). Seeds a throwaway
+ * customer with placed orders and deletes it again at the end.
+ */
+public class AsyncLatencyBenchmark {
+    private static final int PAGE_SIZE = 20;
+    private static final int ORDERS = 40;
+
+    public static void main(String[] args) throws Exception {
+        if (!BenchmarkSupport.databaseAvailable()) {
+            return;
+        }
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+
+        List<Product> products = new ProductDB().getProductsPage(null, 3).getItems();
+        if (products.isEmpty()) {
+            System.err.println("The products table is empty; load online_shopping.sql first");
+            return;
+        }
+        ShoppingService service = new ShoppingService();
+        String username = "bench_async_" + System.nanoTime();
+        if (service.registerCustomer(username, "benchmark") != RegistrationResult.REGISTERED) {
+            return;
+        }
+        Session session = service.login(username, "benchmark");
+        try (AsyncShoppingService async = new AsyncShoppingService(service)) {
+            OrderDB orderDB = new OrderDB();
+            for (int i = 0; i < ORDERS; i++) {
+                Order order = new Order(session.getCustomer().getId());
+                order.setStatus(Order.OrderStatus.DONE);
+                for (Product product : products) {
+                    order.getItems().add(new OrderItem(product.getId(), product.getName(), product.getPrice(), 1));
+                }
+                orderDB.addOrder(order);
+            }
+
+            System.out.printf("%d clients x %d requests%n", clients, requests);
+            report("storefront, sync (4 reads in a row)", clients, requests, () -> {
+                service.getProductsPage(null, PAGE_SIZE);
+                service.getCategories();
+                Order cart = service.getCurrentOrder(session);
+                if (cart != null && !cart.getItems().isEmpty()) {
+                    List<Integer> productIds = new ArrayList<>();
+                    for (OrderItem item : cart.getItems()) {
+                        productIds.add(item.getProductId());
+                    }
+                    service.getProductsByIds(productIds);
+                }
+            });
+            report("storefront, async (3 parallel, 1 chained)", clients, requests,
+                    () -> async.loadStorefront(session, PAGE_SIZE).join());
+            report("history page, sync (1 joined call)", clients, requests,
+                    () -> service.getCustomerOrderHistoryPage(session, null, PAGE_SIZE));
+            report("history page, async (1 joined call)", clients, requests,
+                    () -> async.getCustomerOrderHistoryPage(session, null, PAGE_SIZE).join());
+            report("history page, async fan-out (1 + N calls)", clients, requests,
+                    () -> fannedOutHistoryPage(async, session).join());
+        } finally {
+            deleteCustomer(username);
+        }
+    }
+
+    // what AsyncShoppingService.getCustomerOrderHistoryPage did before it used the joined query
+    private static CompletableFuture<List<Order>> fannedOutHistoryPage(AsyncShoppingService async, Session session) {
+        return async.getCustomerOrderSummaryPage(session, null, PAGE_SIZE).thenCompose((Page<OrderSummary> summaries) -> {
+            List<CompletableFuture<Order>> orders = new ArrayList<>();
+            for (OrderSummary summary : summaries.getItems()) {
+                orders.add(async.getCustomerOrder(session, summary.getId()));
+            }
+            return CompletableFuture.allOf(orders.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+                List<Order> loaded = new ArrayList<>();
+                for (CompletableFuture<Order> order : orders) {
+                    loaded.add(order.join());
+                }
+                return loaded;
+            });
+        });
+    }
+
+    // every client issues its requests back to back; prints latency per request and throughput
+    private static void report(String name, int clients, int requests, Runnable request) throws Exception {
+        for (int i = 0; i < 5; i++) {
+            request.run();
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] micros = new long[clients * requests];
+        long began;
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int offset = c * requests;
+                running.add(pool.submit(() -> {
+                    start.await();
+                    for (int r = 0; r < requests; r++) {
+                        long t = System.nanoTime();
+                        request.run();
+                        micros[offset + r] = (System.nanoTime() - t) / 1_000;
+                    }
+                    return null;
+                }));
+            }
+            began = System.nanoTime();
+            start.countDown();
+            for (Future<?> client : running) {
+                client.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - began) / 1e9;
+        Arrays.sort(micros);
+        System.out.printf("  %-44s %-32s %,8.0f req/s%n", name, BenchmarkSupport.summarize(micros), micros.length / seconds);
+    }
+
+    // the seeded orders go with the customer through ON DELETE CASCADE
+    private static void deleteCustomer(String username) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM customers WHERE username = ?")) {
+            pstmt.setString(1, username);
+            pstmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.onlineshopping.bench;
+
+import com.onlineshopping.catalog.ProductAutocomplete;
+import com.onlineshopping.catalog.ProductSource;
+import com.onlineshopping.model.Product;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * ProductAutocomplete.suggest latency by prefix length over a synthetic catalog.
+ * Args: catalog size (default 500000).
+ */
+public class AutocompleteBenchmark {
+    private static final String[] PREFIXES = {"w", "wi", "wir", "wire", "wireless", "wireless h", "x", "b12"};
+    private static final int LIMIT = 5;
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        List<Product> catalog = CatalogGenerator.generate(size, 42);
+        Random random = new Random(7);
+        Map<Integer, Long> popularity = new HashMap<>();
+        for (Product product : catalog) {
+            popularity.put(product.getId(), (long) random.nextInt(1_000));
+        }
+
+        ProductAutocomplete autocomplete = ProductAutocomplete.getInstance();
+        autocomplete.reset();
+        long start = System.nanoTime();
+        autocomplete.ensureBuilt(() -> ProductSource.of(catalog), () -> popularity);
+        System.out.printf("%,d products, built in %,dms%n", size, (System.nanoTime() - start) / 1_000_000);
+
+        for (String prefix : PREFIXES) {
+            long[] timings = BenchmarkSupport.timeMicros(5, 50, () -> autocomplete.suggest(prefix, LIMIT));
+            System.out.printf("  %-12s %-32s %s%n", '"' + prefix + '"', BenchmarkSupport.summarize(timings),
+                    autocomplete.suggest(prefix, LIMIT));
+        }
+
+        // a sale moves a product up; the next lookup must see it
+        Product first = catalog.get(0);
+        autocomplete.productsSold(Map.of(first.getId(), 1_000_000));
+        String prefix = first.getName().substring(0, 1).toLowerCase();
+        long[] timings = BenchmarkSupport.timeMicros(5, 50, () -> autocomplete.suggest(prefix, LIMIT));
+        System.out.printf("  after a sale %-32s %s%n", BenchmarkSupport.summarize(timings), autocomplete.suggest(prefix, LIMIT));
+
+        // removing a ranked product forces the short prefixes it was ranked under to be recomputed once
+        autocomplete.productRemoved(first.getId());
+        start = System.nanoTime();
+        List<String> afterRemoval = autocomplete.suggest(prefix, LIMIT);
+        System.out.printf("  after removal, first lookup %,dus %s%n", (System.nanoTime() - start) / 1_000, afterRemoval);
+        autocomplete.reset();
+    }
+}
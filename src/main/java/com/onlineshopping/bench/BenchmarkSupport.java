@@ -0,0 +1,68 @@
+package com.onlineshopping.bench;
+
+import com.onlineshopping.database.DatabaseManager;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * Timing helpers shared by the benchmark mains in this package. Each benchmark is run with
+ * {@code java -cp "build/classes:lib/*" com.onlineshopping.bench.<Name>} after ./build.sh.
+ */
+final class BenchmarkSupport {
+    private BenchmarkSupport() {}
+
+    // runs the task warmups times untimed, then runs times; returns the sorted run times in microseconds
+    static long[] timeMicros(int warmups, int runs, Runnable task) {
+        for (int i = 0; i < warmups; i++) {
+            task.run();
+        }
+        long[] micros = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            task.run();
+            micros[i] = (System.nanoTime() - start) / 1_000;
+        }
+        Arrays.sort(micros);
+        return micros;
+    }
+
+    static long median(long[] sortedMicros) {
+        return sortedMicros[sortedMicros.length / 2];
+    }
+
+    static long p95(long[] sortedMicros) {
+        return sortedMicros[Math.min(sortedMicros.length - 1, (int) Math.ceil(sortedMicros.length * 0.95) - 1)];
+    }
+
+    static String summarize(long[] sortedMicros) {
+        return String.format("median %,dus  p95 %,dus", median(sortedMicros), p95(sortedMicros));
+    }
+
+    // heap in use after asking the collector to settle; only meaningful as a difference of two calls
+    static long usedHeapBytes() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // false (with a message) when the configured MySQL database cannot be reached
+    static boolean databaseAvailable() {
+        try {
+            Connection conn = DatabaseManager.getInstance().getConnection();
+            conn.close();
+            return true;
+        } catch (SQLException e) {
+            System.err.println("This benchmark needs the MySQL database from DatabaseManager: " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.onlineshopping.bench;
+
+import com.onlineshopping.catalog.ColumnarProductStore;
+import com.onlineshopping.catalog.ProductSource;
+import com.onlineshopping.model.Product;
+
+import java.util.List;
+
+/**
+ * Heap and full-scan cost of the catalog listing held as one Product per row versus the
+ * ColumnarProductStore the cache keeps. The scan reads the fields the index builds read.
+ * Args: catalog sizes (default 100000 500000 1000000); 1M products needs about -Xmx3g.
+ */
+public class CatalogFootprintBenchmark {
+    public static void main(String[] args) {
+        int[] sizes = {100_000, 500_000, 1_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.printf("%10s  %-8s  %12s  %12s  %-32s%n", "products", "layout", "heap", "estimate", "scan");
+        for (int size : sizes) {
+            long base = BenchmarkSupport.usedHeapBytes();
+            List<Product> objects = CatalogGenerator.generate(size, 42);
+            long objectBytes = BenchmarkSupport.usedHeapBytes() - base;
+            long[] objectScan = BenchmarkSupport.timeMicros(3, 20, () -> scan(ProductSource.of(objects)));
+
+            ColumnarProductStore store = toStore(objects);
+            objects.clear();
+            long storeBytes = BenchmarkSupport.usedHeapBytes() - base;
+            long[] storeScan = BenchmarkSupport.timeMicros(3, 20, () -> scan(store));
+
+            System.out.printf("%,10d  %-8s  %,10dKB  %12s  %-32s%n", size, "objects", objectBytes / 1024, "",
+                    BenchmarkSupport.summarize(objectScan));
+            System.out.printf("%,10d  %-8s  %,10dKB  %,10dKB  %-32s%n", size, "columnar", storeBytes / 1024,
+                    store.footprintBytes() / 1024, BenchmarkSupport.summarize(storeScan));
+        }
+    }
+
+    // the builder's growth buffers are garbage once this returns, so only the store is measured
+    private static ColumnarProductStore toStore(List<Product> products) {
+        ColumnarProductStore.Builder builder = ColumnarProductStore.builder();
+        products.forEach(builder::add);
+        return builder.build();
+    }
+
+    // touches name, category and description the way the search index build does
+    private static long scan(ProductSource catalog) {
+        long[] chars = new long[1];
+        catalog.forEach(p -> chars[0] += p.getName().length() + p.getCategory().length() + p.getDescription().length());
+        return chars[0];
+    }
+}
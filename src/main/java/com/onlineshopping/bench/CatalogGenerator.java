@@ -0,0 +1,50 @@
+package com.onlineshopping.bench;
+
+import com.onlineshopping.model.Product;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// deterministic synthetic catalogs for the in-memory benchmarks
+final class CatalogGenerator {
+    static final String[] CATEGORIES = {
+        "Electronics", "Clothing", "Books", "Home & Garden", "Sports & Outdoors",
+        "Toys", "Beauty", "Grocery", "Automotive", "Office"
+    };
+    private static final String[] ADJECTIVES = {
+        "wireless", "organic", "portable", "premium", "compact", "classic", "smart", "ergonomic",
+        "waterproof", "vintage", "ultra", "deluxe", "lightweight", "heavy", "digital", "bamboo"
+    };
+    private static final String[] NOUNS = {
+        "headphones", "jacket", "notebook", "lamp", "backpack", "blender", "keyboard", "tent",
+        "sneakers", "speaker", "mug", "charger", "monitor", "bottle", "chair", "watch",
+        "camera", "pillow", "drill", "scarf", "router", "kettle", "bicycle", "puzzle"
+    };
+    private static final String[] FILLER = {
+        "with", "for", "and", "daily", "use", "long", "lasting", "battery", "soft", "cotton",
+        "steel", "frame", "fast", "charging", "easy", "setup", "travel", "home", "office", "gift"
+    };
+
+    private CatalogGenerator() {}
+
+    // ids 1..count; names repeat often enough for the dictionary to matter, as real catalogs do
+    static List<Product> generate(int count, long seed) {
+        Random random = new Random(seed);
+        List<Product> products = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            String name = pick(random, ADJECTIVES) + " " + pick(random, NOUNS) + " " + (char) ('A' + random.nextInt(26)) + random.nextInt(1000);
+            StringBuilder description = new StringBuilder(pick(random, ADJECTIVES));
+            for (int w = 0; w < 8; w++) {
+                description.append(' ').append(pick(random, random.nextBoolean() ? FILLER : NOUNS));
+            }
+            double price = Math.round(random.nextDouble() * 50_000) / 100.0;
+            products.add(new Product(id, name, description.toString(), price, random.nextInt(500), pick(random, CATEGORIES)));
+        }
+        return products;
+    }
+
+    private static String pick(Random random, String[] words) {
+        return words[random.nextInt(words.length)];
+    }
+}
@@ -0,0 +1,117 @@
+package com.onlineshopping.bench;
+
+import com.onlineshopping.database.DatabaseManager;
+import com.onlineshopping.dbquery.CustomerDB;
+import com.onlineshopping.dbquery.OrderDB;
+import com.onlineshopping.dbquery.ProductDB;
+import com.onlineshopping.model.Customer;
+import com.onlineshopping.model.Order;
+import com.onlineshopping.model.OrderItem;
+import com.onlineshopping.model.Product;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Order history load time versus order count: the old path (get_orders_by_customer_id,
+ * then get_order_items once per order) against the single joined
+ * get_orders_with_items_by_customer_id call behind OrderDB.getOrdersByCustomerId.
+ *
+ * Args: order counts to test (default 10 100 500). Each count gets a throwaway customer
+ * whose orders are deleted again at the end.
+ */
+public class OrderHistoryBenchmark {
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int WARMUPS = 3;
+    private static final int RUNS = 20;
+
+    public static void main(String[] args) throws SQLException {
+        if (!BenchmarkSupport.databaseAvailable()) {
+            return;
+        }
+        int[] orderCounts = args.length > 0 ? parseCounts(args) : new int[] {10, 100, 500};
+        List<Product> products = new ProductDB().getProductsPage(null, ITEMS_PER_ORDER).getItems();
+        if (products.isEmpty()) {
+            System.err.println("The products table is empty; load online_shopping.sql first");
+            return;
+        }
+
+        OrderDB orderDB = new OrderDB();
+        System.out.printf("%8s  %-32s  %-32s  %s%n", "orders", "per-order items (N+1)", "joined (1 call)", "speedup");
+        for (int orderCount : orderCounts) {
+            Customer customer = new Customer("bench_history_" + System.nanoTime(), "benchmark");
+            if (!new CustomerDB().addCustomer(customer)) {
+                return;
+            }
+            try {
+                for (int i = 0; i < orderCount; i++) {
+                    Order order = new Order(customer.getId());
+                    order.setStatus(Order.OrderStatus.DONE);
+                    for (Product product : products) {
+                        order.getItems().add(new OrderItem(product.getId(), product.getName(), product.getPrice(), 1));
+                    }
+                    orderDB.addOrder(order);
+                }
+
+                int customerId = customer.getId();
+                long[] perOrder = BenchmarkSupport.timeMicros(WARMUPS, RUNS, () -> loadWithPerOrderItems(customerId));
+                long[] joined = BenchmarkSupport.timeMicros(WARMUPS, RUNS, () -> orderDB.getOrdersByCustomerId(customerId));
+                System.out.printf("%8d  %-32s  %-32s  %.1fx%n", orderCount,
+                        BenchmarkSupport.summarize(perOrder), BenchmarkSupport.summarize(joined),
+                        (double) BenchmarkSupport.median(perOrder) / Math.max(1, BenchmarkSupport.median(joined)));
+            } finally {
+                deleteCustomer(customer.getId());
+            }
+        }
+    }
+
+    // the pre-join access pattern: one call for the headers, then one per order for its items
+    private static int loadWithPerOrderItems(int customerId) {
+        int items = 0;
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             CallableStatement orders = conn.prepareCall("{CALL get_orders_by_customer_id(?)}")) {
+            orders.setInt(1, customerId);
+            List<Integer> orderIds = new ArrayList<>();
+            try (ResultSet rs = orders.executeQuery()) {
+                while (rs.next()) {
+                    orderIds.add(rs.getInt("order_id"));
+                }
+            }
+            for (int orderId : orderIds) {
+                try (CallableStatement itemsCall = conn.prepareCall("{CALL get_order_items(?)}")) {
+                    itemsCall.setInt(1, orderId);
+                    try (ResultSet rs = itemsCall.executeQuery()) {
+                        while (rs.next()) {
+                            items++;
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        return items;
+    }
+
+    // orders and their items go with the customer through ON DELETE CASCADE
+    private static void deleteCustomer(int customerId) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM customers WHERE customer_id = ?")) {
+            pstmt.setInt(1, customerId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    private static int[] parseCounts(String[] args) {
+        int[] counts = new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            counts[i] = Integer.parseInt(args[i]);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,72 @@
+package com.onlineshopping.bench;
+
+import com.onlineshopping.catalog.ProductSearchIndex;
+import com.onlineshopping.catalog.ProductSource;
+import com.onlineshopping.model.Product;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * ProductSearchIndex against a LIKE '%term%' style scan at 10k, 100k and 1M products.
+ *
+ * search_products is a full table scan that compares every name, description and category
+ * with the term, so the scan here does the same comparisons over the same rows in memory.
+ * That leaves out the network and MySQL's row handling and is therefore a lower bound for
+ * the real LIKE path. Args: catalog sizes (default 10000 100000 1000000); 1M products needs
+ * about -Xmx3g.
+ */
+public class SearchBenchmark {
+    private static final String[] QUERIES = {"wireless", "organic mug", "kett", "waterproof tent b"};
+    private static final int RESULT_LIMIT = 50;
+
+    public static void main(String[] args) {
+        int[] sizes = {10_000, 100_000, 1_000_000};
+        if (args.length > 0) {
+            sizes = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                sizes[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        ProductSearchIndex index = ProductSearchIndex.getInstance();
+        System.out.printf("%10s  %-20s  %-14s  %-32s  %-32s%n", "products", "query", "index build", "LIKE scan", "index");
+        for (int size : sizes) {
+            List<Product> catalog = CatalogGenerator.generate(size, 42);
+            index.reset();
+            long start = System.nanoTime();
+            index.ensureBuilt(() -> ProductSource.of(catalog));
+            long buildMs = (System.nanoTime() - start) / 1_000_000;
+
+            for (String query : QUERIES) {
+                long[] scan = BenchmarkSupport.timeMicros(2, 10, () -> likeScan(catalog, query));
+                long[] indexed = BenchmarkSupport.timeMicros(20, 200, () -> index.search(query, RESULT_LIMIT));
+                System.out.printf("%,10d  %-20s  %,11dms  %-32s  %-32s%n", size, '"' + query + '"', buildMs,
+                        BenchmarkSupport.summarize(scan), BenchmarkSupport.summarize(indexed));
+            }
+        }
+        index.reset();
+    }
+
+    // what search_products does per row: every query word as a substring of name, description or category
+    private static int likeScan(List<Product> catalog, String query) {
+        String[] terms = query.toLowerCase(Locale.ROOT).split(" ");
+        int matches = 0;
+        for (Product product : catalog) {
+            String name = product.getName().toLowerCase(Locale.ROOT);
+            String description = product.getDescription().toLowerCase(Locale.ROOT);
+            String category = product.getCategory().toLowerCase(Locale.ROOT);
+            boolean all = true;
+            for (String term : terms) {
+                if (!name.contains(term) && !description.contains(term) && !category.contains(term)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+}
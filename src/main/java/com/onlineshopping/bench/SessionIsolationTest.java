@@ -0,0 +1,204 @@
+package com.onlineshopping.bench;
+
+import com.onlineshopping.database.DatabaseManager;
+import com.onlineshopping.dbquery.ProductDB;
+import com.onlineshopping.model.CartUpdate;
+import com.onlineshopping.model.Customer;
+import com.onlineshopping.model.Order;
+import com.onlineshopping.model.OrderItem;
+import com.onlineshopping.model.PlaceOrderResult;
+import com.onlineshopping.model.Product;
+import com.onlineshopping.model.RegistrationResult;
+import com.onlineshopping.service.Session;
+import com.onlineshopping.service.SessionCache;
+import com.onlineshopping.service.ShoppingService;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Many shoppers using one ShoppingService at once must never see each other's data.
+ *
+ * The session cache part needs no database: threads open, resolve and close sessions for
+ * thousands of one-off customers and check that a token only ever resolves to the customer
+ * it was issued to, and that the per-customer token index stays bounded. With a database,
+ * each shopper also fills a cart through its own session and checks that its cart holds
+ * exactly what it added, then two sessions of one customer race to place the same cart and
+ * exactly one may succeed.
+ *
+ * Args: threads (default 16), operations per thread (default 5000). Exits with status 1 on failure.
+ */
+public class SessionIsolationTest {
+    private static final int MAX_SESSIONS = Integer.getInteger("session.maxSessions", 10_000);
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 5_000;
+
+        boolean passed = sessionCacheIsolated(threads, operations);
+        if (BenchmarkSupport.databaseAvailable()) {
+            passed &= cartsIsolated(threads, Math.min(operations, 50));
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean sessionCacheIsolated(int threads, int operations) throws Exception {
+        SessionCache sessions = SessionCache.getInstance();
+        AtomicInteger leaks = new AtomicInteger();
+        long began = System.nanoTime();
+        runConcurrently(threads, thread -> () -> {
+            Random random = new Random(thread);
+            List<String> open = new ArrayList<>();
+            List<Integer> owners = new ArrayList<>();
+            for (int i = 0; i < operations; i++) {
+                // a new customer each time, most of whom never come back
+                int customerId = thread * operations + i + 1;
+                String token = sessions.open(new Customer(customerId, "shopper" + customerId, null));
+                open.add(token);
+                owners.add(customerId);
+
+                int pick = random.nextInt(open.size());
+                Customer resolved = sessions.get(open.get(pick));
+                // null is fine (evicted or closed), anyone else's customer is a leak
+                if (resolved != null && resolved.getId() != owners.get(pick)) {
+                    leaks.incrementAndGet();
+                }
+                if (random.nextInt(4) == 0) {
+                    sessions.close(open.get(pick));
+                }
+            }
+            return null;
+        });
+
+        int indexed = sessions.getIndexedTokenCount();
+        boolean passed = leaks.get() == 0 && indexed <= 2 * MAX_SESSIONS;
+        System.out.printf("session cache: %d threads x %d logins in %,dms, %d tokens resolved to the wrong customer, "
+                + "%,d tokens indexed (limit %,d) -> %s%n", threads, operations, (System.nanoTime() - began) / 1_000_000,
+                leaks.get(), indexed, 2 * MAX_SESSIONS, passed ? "PASS" : "FAIL");
+        return passed;
+    }
+
+    private static boolean cartsIsolated(int threads, int additions) throws Exception {
+        ShoppingService service = new ShoppingService();
+        ProductDB productDB = new ProductDB();
+        Product product = new Product("Session test product " + System.nanoTime(), null, 1.00, threads * additions * 3, "Benchmark");
+        if (!productDB.addProduct(product)) {
+            return false;
+        }
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String username = "bench_session_" + i + "_" + System.nanoTime();
+            if (service.registerCustomer(username, "benchmark") != RegistrationResult.REGISTERED) {
+                cleanUp(productDB, product, usernames);
+                return false;
+            }
+            usernames.add(username);
+        }
+
+        AtomicInteger leaks = new AtomicInteger();
+        AtomicInteger doublePlaced = new AtomicInteger();
+        long began = System.nanoTime();
+        try {
+            runConcurrently(threads, thread -> () -> {
+                Session session = service.login(usernames.get(thread), "benchmark");
+                int expected = 0;
+                for (int i = 0; i < additions; i++) {
+                    int quantity = 1 + i % 3;
+                    CartUpdate update = service.addProductToCart(session, product.getId(), quantity);
+                    if (update != null && update.isAdded()) {
+                        expected += quantity;
+                    }
+                    Order cart = service.getCurrentOrder(session);
+                    if (cart == null || cart.getCustomerId() != session.getCustomer().getId() || quantityOf(cart, product) != expected) {
+                        leaks.incrementAndGet();
+                    }
+                }
+
+                // a second login of the same customer races the first to place the cart
+                Session other = service.login(usernames.get(thread), "benchmark");
+                CountDownLatch race = new CountDownLatch(1);
+                ExecutorService racer = Executors.newSingleThreadExecutor();
+                Future<Boolean> otherPlaced = racer.submit(() -> {
+                    race.await();
+                    return service.placeOrder(other) == PlaceOrderResult.PLACED;
+                });
+                race.countDown();
+                boolean placed = service.placeOrder(session) == PlaceOrderResult.PLACED;
+                if (placed == otherPlaced.get()) {
+                    doublePlaced.incrementAndGet();
+                }
+                racer.shutdown();
+                return null;
+            });
+
+            boolean passed = leaks.get() == 0 && doublePlaced.get() == 0;
+            System.out.printf("carts: %d shoppers x %d additions in %,dms, %d carts showing another shopper's data, "
+                    + "%d carts placed twice or not at all -> %s%n", threads, additions, (System.nanoTime() - began) / 1_000_000,
+                    leaks.get(), doublePlaced.get(), passed ? "PASS" : "FAIL");
+            return passed;
+        } finally {
+            cleanUp(productDB, product, usernames);
+        }
+    }
+
+    private static int quantityOf(Order order, Product product) {
+        int quantity = 0;
+        for (OrderItem item : order.getItems()) {
+            if (item.getProductId() == product.getId()) {
+                quantity += item.getQuantity();
+            }
+        }
+        return quantity;
+    }
+
+    private interface Task {
+        Callable<Void> forThread(int thread);
+    }
+
+    // starts every thread's task together and waits for all of them
+    private static void runConcurrently(int threads, Task task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Void>> running = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                Callable<Void> work = task.forThread(t);
+                running.add(pool.submit(() -> {
+                    start.await();
+                    return work.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> future : running) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // the customers' orders go with them through ON DELETE CASCADE
+    private static void cleanUp(ProductDB productDB, Product product, List<String> usernames) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM customers WHERE username = ?")) {
+            for (String username : usernames) {
+                pstmt.setString(1, username);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        productDB.removeProduct(product.getId());
+    }
+}
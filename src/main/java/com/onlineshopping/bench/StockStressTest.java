@@ -0,0 +1,137 @@
+package com.onlineshopping.bench;
+
+import com.onlineshopping.database.DatabaseManager;
+import com.onlineshopping.dbquery.CustomerDB;
+import com.onlineshopping.dbquery.OrderDB;
+import com.onlineshopping.dbquery.ProductDB;
+import com.onlineshopping.model.CartUpdate;
+import com.onlineshopping.model.Customer;
+import com.onlineshopping.model.Product;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Many shoppers adding, removing and cancelling the same scarce product at once, through
+ * the add_product_to_cart, remove_product_from_cart and cancel_active_order paths. Passes
+ * when stock never went negative and the final stock plus the quantity still held in open
+ * carts equals the starting stock, i.e. no update was lost and nothing was oversold.
+ *
+ * Args: threads (default 16), starting stock (default 200), operations per thread
+ * (default 200). Exits with status 1 on failure.
+ */
+public class StockStressTest {
+
+    public static void main(String[] args) throws Exception {
+        if (!BenchmarkSupport.databaseAvailable()) {
+            return;
+        }
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 16;
+        int initialStock = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int operations = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        ProductDB productDB = new ProductDB();
+        OrderDB orderDB = new OrderDB();
+        Product product = new Product("Stress test product " + System.nanoTime(), null, 1.00, initialStock, "Benchmark");
+        if (!productDB.addProduct(product)) {
+            return;
+        }
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Customer customer = new Customer("bench_stock_" + i + "_" + System.nanoTime(), "benchmark");
+            if (!new CustomerDB().addCustomer(customer)) {
+                cleanUp(productDB, product, customers);
+                return;
+            }
+            customers.add(customer);
+        }
+
+        LongAdder added = new LongAdder();
+        LongAdder refused = new LongAdder();
+        LongAdder removed = new LongAdder();
+        LongAdder cancelled = new LongAdder();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        long began = System.nanoTime();
+        boolean passed;
+        try {
+            List<Future<?>> shoppers = new ArrayList<>();
+            for (Customer customer : customers) {
+                shoppers.add(pool.submit(() -> {
+                    Random random = new Random(customer.getId());
+                    start.await();
+                    for (int i = 0; i < operations; i++) {
+                        int roll = random.nextInt(10);
+                        if (roll < 6) {
+                            CartUpdate update = orderDB.addProductToCart(customer.getId(), product.getId(), 1 + random.nextInt(3));
+                            (update != null && update.isAdded() ? added : refused).increment();
+                        } else if (roll < 9) {
+                            if (orderDB.removeProductFromCart(customer.getId(), product.getId()) > 0) {
+                                removed.increment();
+                            }
+                        } else if (orderDB.cancelActiveOrder(customer.getId()) > 0) {
+                            cancelled.increment();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> shopper : shoppers) {
+                shopper.get();
+            }
+            long elapsedMs = (System.nanoTime() - began) / 1_000_000;
+
+            int finalStock = queryInt("SELECT stock FROM products WHERE product_id = ?", product.getId());
+            int heldInCarts = queryInt("SELECT COALESCE(SUM(i.quantity), 0) FROM order_items i "
+                    + "JOIN orders o ON o.order_id = i.order_id "
+                    + "WHERE i.product_id = ? AND o.status = 'ON_SHOPPING'", product.getId());
+            passed = finalStock >= 0 && finalStock + heldInCarts == initialStock;
+
+            System.out.printf("%d threads x %d operations in %,dms: %d adds, %d refused, %d removes, %d cancels%n",
+                    threads, operations, elapsedMs, added.sum(), refused.sum(), removed.sum(), cancelled.sum());
+            System.out.printf("starting stock %d, final stock %d, held in open carts %d -> %s%n",
+                    initialStock, finalStock, heldInCarts, passed ? "PASS" : "FAIL");
+        } finally {
+            pool.shutdownNow();
+            cleanUp(productDB, product, customers);
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static int queryInt(String sql, int productId) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, productId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    // the customers' orders go with them through ON DELETE CASCADE
+    private static void cleanUp(ProductDB productDB, Product product, List<Customer> customers) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement("DELETE FROM customers WHERE customer_id = ?")) {
+            for (Customer customer : customers) {
+                pstmt.setInt(1, customer.getId());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+        productDB.removeProduct(product.getId());
+    }
+}
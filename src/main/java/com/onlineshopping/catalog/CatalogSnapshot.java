@@ -0,0 +1,145 @@
+package com.onlineshopping.catalog;
+
+import com.onlineshopping.model.Product;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary copy of the catalog used to start warm.
+ *
+ * Layout (big-endian): magic, format version, watermark (epoch millis of the newest
+ * products.updated_at the snapshot is known to include), then one record per product
+ * (id, price, stock, name, category, description; strings as byte length + UTF-8, -1 for
+ * null), then the row count and a CRC32 of everything before the CRC. Files are written to
+ * a temporary name and moved into place, so a reader never sees a half-written snapshot.
+ */
+public final class CatalogSnapshot {
+    private static final int MAGIC = 0x4F534353; // "OSCS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int TRAILER_BYTES = 12;
+
+    private final long watermark;
+    private final ColumnarProductStore store;
+
+    private CatalogSnapshot(long watermark, ColumnarProductStore store) {
+        this.watermark = watermark;
+        this.store = store;
+    }
+
+    public long getWatermark() { return watermark; }
+    public ColumnarProductStore getStore() { return store; }
+
+    public static void write(Path file, long watermark, Iterator<Product> products) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (OutputStream raw = Files.newOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(raw, crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(watermark);
+            int rows = 0;
+            while (products.hasNext()) {
+                Product product = products.next();
+                out.writeInt(product.getId());
+                out.writeDouble(product.getPrice());
+                out.writeInt(product.getStock());
+                writeString(out, product.getName());
+                writeString(out, product.getCategory());
+                writeString(out, product.getDescription());
+                rows++;
+            }
+            out.writeInt(rows);
+            out.flush();
+            // the checksum itself goes straight to the file, outside the checked stream
+            new DataOutputStream(raw).writeLong(crc.getValue());
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Maps and decodes {@code file}. Throws IOException if it is unreadable, from another
+     * format version, or fails its checksum.
+     */
+    public static CatalogSnapshot read(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot has an unexpected size: " + size + " bytes");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        int limit = buffer.capacity();
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a catalog snapshot");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version " + version + " (expected " + VERSION + ")");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, limit - 8));
+        if (crc.getValue() != buffer.getLong(limit - 8)) {
+            throw new IOException("Snapshot checksum mismatch");
+        }
+
+        long watermark = buffer.getLong(8);
+        int rows = buffer.getInt(limit - TRAILER_BYTES);
+        ByteBuffer records = buffer.slice(HEADER_BYTES, limit - TRAILER_BYTES - HEADER_BYTES);
+        ColumnarProductStore.Builder store = ColumnarProductStore.builder();
+        for (int i = 0; i < rows; i++) {
+            int id = records.getInt();
+            double price = records.getDouble();
+            int stock = records.getInt();
+            String name = readString(records);
+            String category = readString(records);
+            // descriptions are copied as bytes and only decoded when a view asks for them
+            store.addRow(id, name, readBytes(records), price, stock, category);
+        }
+        if (records.hasRemaining()) {
+            throw new IOException("Snapshot has trailing data after " + rows + " rows");
+        }
+        return new CatalogSnapshot(watermark, store.build());
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        ByteBuffer bytes = readBytes(in);
+        return bytes != null ? StandardCharsets.UTF_8.decode(bytes).toString() : null;
+    }
+
+    private static ByteBuffer readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        ByteBuffer bytes = in.slice(in.position(), length);
+        in.position(in.position() + length);
+        return bytes;
+    }
+}
@@ -0,0 +1,91 @@
+package com.onlineshopping.catalog;
+
+import com.onlineshopping.model.CategoryCount;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Live product counts per category, kept in memory so listing categories never scans
+ * the products table.
+ *
+ * Built once from a scan of the catalog listing and then maintained by ProductDB after
+ * each committed write. Updates are idempotent (they move a product from whatever category
+ * it is recorded under to its new one), so a write that races with the initial load is
+ * counted exactly once.
+ */
+public class CategoryFacets {
+    private static CategoryFacets instance;
+
+    private final TreeMap<String, Integer> counts = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<Integer, String> categoryById = new HashMap<>();
+    private boolean built;
+
+    private CategoryFacets() {}
+
+    public static synchronized CategoryFacets getInstance() {
+        if (instance == null) {
+            instance = new CategoryFacets();
+        }
+        return instance;
+    }
+
+    // the loader may return null if it failed
+    public synchronized void ensureBuilt(Supplier<? extends ProductSource> catalog) {
+        if (built) {
+            return;
+        }
+        ProductSource products = catalog.get();
+        if (products == null) {
+            return;
+        }
+        products.forEach(product -> move(product.getId(), product.getCategory()));
+        built = true;
+    }
+
+    // drops everything so the next ensureBuilt reloads, used after bulk catalog changes
+    public synchronized void reset() {
+        counts.clear();
+        categoryById.clear();
+        built = false;
+    }
+
+    public synchronized List<CategoryCount> getCategories() {
+        List<CategoryCount> categories = new ArrayList<>(counts.size());
+        for (Map.Entry<String, Integer> e : counts.entrySet()) {
+            categories.add(new CategoryCount(e.getKey(), e.getValue()));
+        }
+        return categories;
+    }
+
+    public synchronized int getCount(String category) {
+        return counts.getOrDefault(category, 0);
+    }
+
+    public synchronized void productSaved(int productId, String category) {
+        if (built) {
+            move(productId, category);
+        }
+    }
+
+    public synchronized void productRemoved(int productId) {
+        if (built) {
+            move(productId, null);
+        }
+    }
+
+    private void move(int productId, String category) {
+        String normalized = category == null || category.isBlank() ? null : category.trim();
+        String previous = normalized != null ? categoryById.put(productId, normalized) : categoryById.remove(productId);
+        if (previous != null) {
+            counts.computeIfPresent(previous, (k, n) -> n > 1 ? n - 1 : null);
+        }
+        if (normalized != null) {
+            counts.merge(normalized, 1, Integer::sum);
+        }
+    }
+}
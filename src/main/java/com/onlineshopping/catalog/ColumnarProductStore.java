@@ -0,0 +1,368 @@
+package com.onlineshopping.catalog;
+
+import com.onlineshopping.model.Product;
+import com.onlineshopping.model.ProductInfo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Read-optimized copy of the catalog stored column by column. Stock is the only column that
+ * changes after the store is built, through {@link #updateStock}; everything else is immutable.
+ *
+ * Ids, prices and stock live in primitive arrays; names and categories are dictionary
+ * encoded, so repeated values are stored once; descriptions are kept as one UTF-8 byte
+ * array and decoded only when asked for. Rows keep the order they were added in; a scan
+ * reads them through one reused {@link ProductView} rather than one heap object per product.
+ */
+public final class ColumnarProductStore implements ProductSource {
+    private static final int NULL_CODE = -1;
+
+    private final int size;
+    private final int[] ids;
+    private final double[] prices;
+    private final AtomicIntegerArray stock;
+    private final int[] nameCodes;
+    private final int[] categoryCodes;
+    private final String[] dictionary;
+    private final byte[] descriptions;
+    // row i's description is descriptions[descriptionOffsets[i] .. descriptionOffsets[i + 1])
+    private final int[] descriptionOffsets;
+    private final BitSet nullDescriptions;
+    // (id << 32 | row), sorted, for lookups by id
+    private final long[] idIndex;
+    // lower-cased category -> its product ids, sorted; built on the first category lookup
+    private volatile Map<String, int[]> categoryIndex;
+
+    private ColumnarProductStore(Builder b) {
+        this.size = b.size;
+        this.ids = Arrays.copyOf(b.ids, size);
+        this.prices = Arrays.copyOf(b.prices, size);
+        this.stock = new AtomicIntegerArray(Arrays.copyOf(b.stock, size));
+        this.nameCodes = Arrays.copyOf(b.nameCodes, size);
+        this.categoryCodes = Arrays.copyOf(b.categoryCodes, size);
+        this.dictionary = b.dictionary.toArray(new String[0]);
+        this.descriptions = Arrays.copyOf(b.descriptions, b.descriptionLength);
+        this.descriptionOffsets = Arrays.copyOf(b.descriptionOffsets, size + 1);
+        this.nullDescriptions = (BitSet) b.nullDescriptions.clone();
+
+        this.idIndex = new long[size];
+        for (int row = 0; row < size; row++) {
+            idIndex[row] = ((long) ids[row] << 32) | row;
+        }
+        Arrays.sort(idIndex);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // a copy of the product with this id that the caller owns, or null if the store does not have it
+    public Product get(int productId) {
+        int row = rowOf(productId);
+        return row >= 0 ? productAt(row) : null;
+    }
+
+    /**
+     * Ids of up to {@code limit} products with an id above {@code afterId}, in id order: the
+     * rows a keyset page of the products table would return. A non-null {@code category}
+     * keeps only that category, compared ignoring case as the column's collation does.
+     */
+    public int[] idsAfter(int afterId, String category, int limit) {
+        if (category != null) {
+            int[] categoryIds = categoryIds(category);
+            int pos = Arrays.binarySearch(categoryIds, afterId);
+            int from = pos >= 0 ? pos + 1 : -pos - 1;
+            return Arrays.copyOfRange(categoryIds, from, Math.min(from + limit, categoryIds.length));
+        }
+        int from = firstIndexAbove(afterId);
+        int[] page = new int[Math.max(0, Math.min(limit, size - from))];
+        for (int i = 0; i < page.length; i++) {
+            page[i] = (int) (idIndex[from + i] >> 32);
+        }
+        return page;
+    }
+
+    // patches one row's stock in place; false if the store does not have the product
+    public boolean updateStock(int productId, int stockLevel) {
+        int row = rowOf(productId);
+        if (row < 0) {
+            return false;
+        }
+        stock.set(row, stockLevel);
+        return true;
+    }
+
+    // visits the rows in store order through one view, repositioned after each call
+    @Override
+    public void forEach(Consumer<? super ProductInfo> action) {
+        ProductView view = new ProductView(this, 0);
+        for (int row = 0; row < size; row++) {
+            view.row = row;
+            action.accept(view);
+        }
+    }
+
+    /**
+     * Returns a copy with {@code changed} products added or replaced and every row whose id
+     * fails {@code keep} dropped. If this store is in name order the copy is too.
+     */
+    public ColumnarProductStore merge(Collection<Product> changed, IntPredicate keep) {
+        Set<Integer> changedIds = new HashSet<>();
+        List<Product> incoming = new ArrayList<>(changed);
+        for (Product product : incoming) {
+            changedIds.add(product.getId());
+        }
+        Comparator<String> byName = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+        incoming.sort(Comparator.comparing(Product::getName, byName));
+
+        Builder merged = builder();
+        int next = 0;
+        for (int row = 0; row < size; row++) {
+            if (!keep.test(ids[row]) || changedIds.contains(ids[row])) {
+                continue;
+            }
+            String name = nameAt(row);
+            while (next < incoming.size() && byName.compare(incoming.get(next).getName(), name) < 0) {
+                merged.add(incoming.get(next++));
+            }
+            merged.addRow(ids[row], name, descriptionBytesAt(row), prices[row], stock.get(row), categoryAt(row));
+        }
+        while (next < incoming.size()) {
+            merged.add(incoming.get(next++));
+        }
+        return merged.build();
+    }
+
+    // approximate heap used by the column arrays, dictionary and category index, excluding the store object itself
+    public long footprintBytes() {
+        long bytes = 4L * size * 4 + 8L * size + 8L * idIndex.length + 4L * descriptionOffsets.length + descriptions.length;
+        for (String value : dictionary) {
+            bytes += 8 + 40 + value.length();
+        }
+        Map<String, int[]> index = categoryIndex;
+        if (index != null) {
+            for (int[] categoryIds : index.values()) {
+                bytes += 16 + 4L * categoryIds.length + 48;
+            }
+        }
+        return bytes;
+    }
+
+    Product productAt(int row) {
+        return new Product(ids[row], nameAt(row), descriptionAt(row), prices[row], stock.get(row), categoryAt(row));
+    }
+
+    int idAt(int row) {
+        return ids[row];
+    }
+
+    String nameAt(int row) {
+        return decode(nameCodes[row]);
+    }
+
+    String categoryAt(int row) {
+        return decode(categoryCodes[row]);
+    }
+
+    double priceAt(int row) {
+        return prices[row];
+    }
+
+    int stockAt(int row) {
+        return stock.get(row);
+    }
+
+    String descriptionAt(int row) {
+        if (nullDescriptions.get(row)) {
+            return null;
+        }
+        int start = descriptionOffsets[row];
+        return new String(descriptions, start, descriptionOffsets[row + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    // the raw UTF-8 description, or null; shares the store's array, so callers must only read it
+    ByteBuffer descriptionBytesAt(int row) {
+        if (nullDescriptions.get(row)) {
+            return null;
+        }
+        int start = descriptionOffsets[row];
+        return ByteBuffer.wrap(descriptions, start, descriptionOffsets[row + 1] - start);
+    }
+
+    private int rowOf(int productId) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int id = (int) (idIndex[mid] >> 32);
+            if (id < productId) {
+                lo = mid + 1;
+            } else if (id > productId) {
+                hi = mid - 1;
+            } else {
+                return (int) idIndex[mid];
+            }
+        }
+        return -1;
+    }
+
+    private int[] categoryIds(String category) {
+        Map<String, int[]> index = categoryIndex;
+        if (index == null) {
+            // two threads may both build it; either result is the same
+            index = buildCategoryIndex();
+            categoryIndex = index;
+        }
+        int[] categoryIds = index.get(category.toLowerCase(Locale.ROOT));
+        return categoryIds != null ? categoryIds : new int[0];
+    }
+
+    private Map<String, int[]> buildCategoryIndex() {
+        int[] counts = new int[dictionary.length];
+        for (int row = 0; row < size; row++) {
+            if (categoryCodes[row] != NULL_CODE) {
+                counts[categoryCodes[row]]++;
+            }
+        }
+        int[][] byCode = new int[dictionary.length][];
+        int[] filled = new int[dictionary.length];
+        // walking idIndex fills each category's ids already sorted
+        for (long entry : idIndex) {
+            int code = categoryCodes[(int) entry];
+            if (code != NULL_CODE) {
+                if (byCode[code] == null) {
+                    byCode[code] = new int[counts[code]];
+                }
+                byCode[code][filled[code]++] = (int) (entry >> 32);
+            }
+        }
+
+        Map<String, int[]> index = new HashMap<>();
+        for (int code = 0; code < byCode.length; code++) {
+            if (byCode[code] != null) {
+                // spellings that differ only in case share one entry, as they do in the database
+                index.merge(dictionary[code].toLowerCase(Locale.ROOT), byCode[code], (a, b) -> {
+                    int[] both = Arrays.copyOf(a, a.length + b.length);
+                    System.arraycopy(b, 0, both, a.length, b.length);
+                    Arrays.sort(both);
+                    return both;
+                });
+            }
+        }
+        return index;
+    }
+
+    // position in idIndex of the smallest id greater than productId
+    private int firstIndexAbove(int productId) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if ((int) (idIndex[mid] >> 32) <= productId) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private String decode(int code) {
+        return code == NULL_CODE ? null : dictionary[code];
+    }
+
+    public static final class Builder {
+        private int size;
+        private int[] ids = new int[16];
+        private double[] prices = new double[16];
+        private int[] stock = new int[16];
+        private int[] nameCodes = new int[16];
+        private int[] categoryCodes = new int[16];
+        private int[] descriptionOffsets = new int[17];
+        private byte[] descriptions = new byte[256];
+        private int descriptionLength;
+        private final BitSet nullDescriptions = new BitSet();
+        private final List<String> dictionary = new ArrayList<>();
+        private final Map<String, Integer> codes = new HashMap<>();
+
+        private Builder() {}
+
+        public Builder add(Product product) {
+            String description = product.getDescription();
+            ByteBuffer utf8 = description != null ? ByteBuffer.wrap(description.getBytes(StandardCharsets.UTF_8)) : null;
+            return addRow(product.getId(), product.getName(), utf8, product.getPrice(), product.getStock(), product.getCategory());
+        }
+
+        // takes the description already UTF-8 encoded (null for none), e.g. straight from a snapshot file
+        Builder addRow(int id, String name, ByteBuffer description, double price, int stockLevel, String category) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                stock = Arrays.copyOf(stock, capacity);
+                nameCodes = Arrays.copyOf(nameCodes, capacity);
+                categoryCodes = Arrays.copyOf(categoryCodes, capacity);
+                descriptionOffsets = Arrays.copyOf(descriptionOffsets, capacity + 1);
+            }
+            ids[size] = id;
+            prices[size] = price;
+            stock[size] = stockLevel;
+            nameCodes[size] = encode(name);
+            categoryCodes[size] = encode(category);
+            addDescription(description);
+            size++;
+            return this;
+        }
+
+        public ColumnarProductStore build() {
+            return new ColumnarProductStore(this);
+        }
+
+        private int encode(String value) {
+            if (value == null) {
+                return NULL_CODE;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        private void addDescription(ByteBuffer description) {
+            if (description == null) {
+                nullDescriptions.set(size);
+            } else {
+                int length = description.remaining();
+                if (descriptionLength + length > descriptions.length) {
+                    descriptions = Arrays.copyOf(descriptions, Math.max(descriptions.length * 2, descriptionLength + length));
+                }
+                description.get(descriptions, descriptionLength, length);
+                descriptionLength += length;
+            }
+            descriptionOffsets[size + 1] = descriptionLength;
+        }
+    }
+}
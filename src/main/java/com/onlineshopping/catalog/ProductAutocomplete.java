@@ -0,0 +1,310 @@
+package com.onlineshopping.catalog;
+
+import com.onlineshopping.model.Product;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+/**
+ * Prefix completion over product names and categories, answered from memory.
+ *
+ * Every word of a name or category is a completion key, so "pro" suggests "iPad Pro" as
+ * well as "Protein Powder". Products rank by units sold; a category ranks by the units
+ * sold across its products. ProductDB patches the index after each committed write, and
+ * updates are idempotent so writes that race with the initial load are applied once.
+ *
+ * Each word keeps its own most popular suggestions, so a one-letter prefix merges a short
+ * list per matching word instead of ranking every suggestion under it. A sale only moves
+ * suggestions up and is applied to those lists in place; a removal or an edit that lowers a
+ * listed suggestion marks the word's list for rebuilding on its next lookup.
+ */
+public class ProductAutocomplete {
+    // Autocomplete settings - override with -Dcatalog.autocomplete.<name>=<value>
+    private static final int TOP_K = Integer.getInteger("catalog.autocomplete.topK", 10);
+
+    private static ProductAutocomplete instance;
+
+    // word -> the suggestions containing it
+    private final TreeMap<String, Word> words = new TreeMap<>();
+    // lower-cased suggestion text -> suggestion; a name shared by several products is one suggestion
+    private final TreeMap<String, Suggestion> suggestions = new TreeMap<>();
+    private final Map<Integer, Entry> products = new HashMap<>();
+    private final Map<Integer, Long> unitsSold = new HashMap<>();
+    private boolean built;
+
+    private ProductAutocomplete() {}
+
+    public static synchronized ProductAutocomplete getInstance() {
+        if (instance == null) {
+            instance = new ProductAutocomplete();
+        }
+        return instance;
+    }
+
+    // popularity is product id -> units sold; either loader may return null if it failed
+    public synchronized void ensureBuilt(Supplier<? extends ProductSource> catalog,
+                                         Supplier<Map<Integer, Long>> popularity) {
+        if (built) {
+            return;
+        }
+        Map<Integer, Long> sold = popularity.get();
+        ProductSource loaded = catalog.get();
+        if (sold == null || loaded == null) {
+            return;
+        }
+        unitsSold.putAll(sold);
+        loaded.forEach(product -> put(product.getId(), product.getName(), product.getCategory()));
+        built = true;
+    }
+
+    /**
+     * Returns up to {@code limit} product names and categories with a word starting with
+     * {@code prefix}, most popular first.
+     */
+    public synchronized List<String> suggest(String prefix, int limit) {
+        String key = prefix == null ? "" : prefix.trim().toLowerCase(Locale.ROOT);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Set<Suggestion> seen = new HashSet<>();
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(Suggestion.RANKING.reversed());
+        if (isWord(key)) {
+            for (Word word : words.subMap(key, key + Character.MAX_VALUE).values()) {
+                for (Suggestion suggestion : word.top(limit)) {
+                    offer(best, seen, suggestion, limit);
+                }
+            }
+        } else {
+            // a prefix spanning words can only match the start of a whole suggestion
+            for (Suggestion suggestion : suggestions.subMap(key, key + Character.MAX_VALUE).values()) {
+                offer(best, seen, suggestion, limit);
+            }
+        }
+
+        List<Suggestion> ranked = new ArrayList<>(best);
+        ranked.sort(Suggestion.RANKING);
+        List<String> texts = new ArrayList<>(ranked.size());
+        for (Suggestion suggestion : ranked) {
+            texts.add(suggestion.text);
+        }
+        return texts;
+    }
+
+    // drops everything so the next ensureBuilt reloads, used after bulk catalog changes
+    public synchronized void reset() {
+        words.clear();
+        suggestions.clear();
+        products.clear();
+        unitsSold.clear();
+        built = false;
+    }
+
+    public synchronized void productSaved(Product product) {
+        if (built) {
+            put(product.getId(), product.getName(), product.getCategory());
+        }
+    }
+
+    public synchronized void productRemoved(int productId) {
+        if (built) {
+            remove(productId);
+            unitsSold.remove(productId);
+        }
+    }
+
+    public synchronized void productsSold(Map<Integer, Integer> quantities) {
+        if (!built) {
+            return;
+        }
+        for (Map.Entry<Integer, Integer> e : quantities.entrySet()) {
+            Entry entry = products.get(e.getKey());
+            if (entry == null) {
+                continue;
+            }
+            unitsSold.merge(e.getKey(), (long) e.getValue(), Long::sum);
+            add(entry.name, e.getValue(), false);
+            if (entry.category != null) {
+                add(entry.category, e.getValue(), false);
+            }
+        }
+    }
+
+    private void put(int productId, String name, String category) {
+        remove(productId);
+        Entry entry = new Entry(normalize(name), normalize(category));
+        long sold = unitsSold.getOrDefault(productId, 0L);
+        products.put(productId, entry);
+        if (entry.name != null) {
+            add(entry.name, sold, true);
+        }
+        if (entry.category != null) {
+            add(entry.category, sold, true);
+        }
+    }
+
+    private void remove(int productId) {
+        Entry entry = products.remove(productId);
+        if (entry == null) {
+            return;
+        }
+        long sold = unitsSold.getOrDefault(productId, 0L);
+        if (entry.name != null) {
+            drop(entry.name, sold);
+        }
+        if (entry.category != null) {
+            drop(entry.category, sold);
+        }
+    }
+
+    // a new reference to the text (a product using it), or a sale of one that already does
+    private void add(String text, long sold, boolean reference) {
+        String key = text.toLowerCase(Locale.ROOT);
+        Suggestion suggestion = suggestions.get(key);
+        if (suggestion == null) {
+            suggestion = new Suggestion(text);
+            suggestions.put(key, suggestion);
+            for (String word : wordsOf(key)) {
+                words.computeIfAbsent(word, k -> new Word()).matches.add(suggestion);
+            }
+        }
+        if (reference) {
+            suggestion.references++;
+        }
+        suggestion.popularity += sold;
+        // it only moved up, so each word's list can take it in place
+        for (String word : wordsOf(key)) {
+            words.get(word).offer(suggestion);
+        }
+    }
+
+    private void drop(String text, long sold) {
+        String key = text.toLowerCase(Locale.ROOT);
+        Suggestion suggestion = suggestions.get(key);
+        suggestion.popularity -= sold;
+        boolean removed = --suggestion.references == 0;
+        if (removed) {
+            suggestions.remove(key);
+        }
+        if (!removed && sold == 0) {
+            return;
+        }
+        for (String word : wordsOf(key)) {
+            Word entry = words.get(word);
+            if (removed) {
+                entry.matches.remove(suggestion);
+                if (entry.matches.isEmpty()) {
+                    words.remove(word);
+                    continue;
+                }
+            }
+            entry.demoted(suggestion);
+        }
+    }
+
+    private static Set<String> wordsOf(String key) {
+        return new HashSet<>(ProductSearchIndex.tokenize(key));
+    }
+
+    private static boolean isWord(String key) {
+        for (int i = 0; i < key.length(); i++) {
+            if (!Character.isLetterOrDigit(key.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // keeps the limit best suggestions in best, skipping ones already offered
+    private static void offer(PriorityQueue<Suggestion> best, Set<Suggestion> seen, Suggestion suggestion, int limit) {
+        if (!seen.add(suggestion)) {
+            return;
+        }
+        best.add(suggestion);
+        if (best.size() > limit) {
+            best.poll();
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null || text.isBlank() ? null : text.trim();
+    }
+
+    private static final class Entry {
+        final String name;
+        final String category;
+
+        Entry(String name, String category) {
+            this.name = name;
+            this.category = category;
+        }
+    }
+
+    // the suggestions containing one word, with the TOP_K most popular of them kept ranked
+    private static final class Word {
+        final Set<Suggestion> matches = new HashSet<>();
+        private final List<Suggestion> top = new ArrayList<>(TOP_K);
+        private boolean stale;
+
+        List<Suggestion> top(int limit) {
+            if (limit > TOP_K) {
+                return new ArrayList<>(matches);
+            }
+            if (stale) {
+                top.clear();
+                stale = false;
+                for (Suggestion suggestion : matches) {
+                    offer(suggestion);
+                }
+            }
+            return top.size() > limit ? top.subList(0, limit) : top;
+        }
+
+        // the suggestion is new to this word or more popular than before
+        void offer(Suggestion suggestion) {
+            if (stale) {
+                return;
+            }
+            if (!top.contains(suggestion)) {
+                if (top.size() < TOP_K) {
+                    top.add(suggestion);
+                } else if (Suggestion.RANKING.compare(suggestion, top.get(top.size() - 1)) < 0) {
+                    top.set(top.size() - 1, suggestion);
+                } else {
+                    return;
+                }
+            }
+            top.sort(Suggestion.RANKING);
+        }
+
+        // the suggestion lost popularity or was removed; a listed one may now belong lower down
+        void demoted(Suggestion suggestion) {
+            if (top.contains(suggestion)) {
+                stale = true;
+            }
+        }
+    }
+
+    private static final class Suggestion {
+        static final Comparator<Suggestion> RANKING = Comparator
+                .comparingLong((Suggestion s) -> -s.popularity)
+                .thenComparing(s -> s.text, String.CASE_INSENSITIVE_ORDER);
+
+        final String text;
+        long popularity;
+        int references;
+
+        Suggestion(String text) {
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.onlineshopping.catalog;
+
+import com.onlineshopping.model.Product;
+import com.onlineshopping.util.CacheStats;
+import com.onlineshopping.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Process-wide read-through cache for catalog reads (single products and the full listing).
+ *
+ * Writers update it synchronously through ProductDB/OrderDB, one product at a time: a stock
+ * change drops that product's entry and marks its listing row stale until the stock is
+ * re-read, and admin edits are merged into the listing, so ordinary traffic never throws the
+ * whole listing away. Loads are stamped with the change counter taken before the query, and
+ * a load that raced with a write to the same product is not cached, so a stale row is never
+ * put back; writes to other products do not affect it.
+ */
+public class ProductCache {
+    // Cache settings - override with -Dcatalog.cache.<name>=<value>
+    private static final int MAX_SIZE = Integer.getInteger("catalog.cache.maxSize", 10_000);
+    private static final long TTL_SECONDS = Long.getLong("catalog.cache.ttlSeconds", 0);
+    private static final int MAX_TRACKED_CHANGES = Integer.getInteger("catalog.cache.maxTrackedChanges", 10_000);
+
+    private static ProductCache instance;
+
+    private final LruCache<Integer, Product> products = new LruCache<>(MAX_SIZE, TTL_SECONDS, TimeUnit.SECONDS);
+    private final AtomicLong changes = new AtomicLong();
+    // product id -> change counter at its last write, oldest first; a product that is no longer
+    // tracked changed at or before forgottenChangesUpTo
+    private final LinkedHashMap<Integer, Long> lastChanged = new LinkedHashMap<>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Long> eldest) {
+            if (size() > MAX_TRACKED_CHANGES) {
+                forgottenChangesUpTo = eldest.getValue();
+                return true;
+            }
+            return false;
+        }
+    };
+    private long forgottenChangesUpTo;
+    private ColumnarProductStore listing;
+    private long listingLoadedAt;
+    // change counter at the last add, edit, removal or bulk change, which a listing load must postdate
+    private long lastStructuralChange;
+    // product id -> change counter when its stock last changed, for listing rows not yet re-read;
+    // bounded by the catalog size and pruned whenever a listing is loaded
+    private final Map<Integer, Long> staleStock = new HashMap<>();
+
+    private long listingHits;
+    private long listingMisses;
+    private long listingDiscards;
+    private long listingExpirations;
+
+    private ProductCache() {}
+
+    public static synchronized ProductCache getInstance() {
+        if (instance == null) {
+            instance = new ProductCache();
+        }
+        return instance;
+    }
+
+    // take before querying the database and hand back to put/putListing/stockRefreshed
+    public long stamp() {
+        return changes.get();
+    }
+
+    // returns a private copy, so callers may modify it freely
+    public Product get(int productId) {
+        Product product = products.get(productId);
+        return product != null ? copy(product) : null;
+    }
+
+    public synchronized void put(Product product, long stamp) {
+        Long changedAt = lastChanged.get(product.getId());
+        if ((changedAt != null ? changedAt : forgottenChangesUpTo) <= stamp) {
+            products.put(product.getId(), copy(product));
+        }
+    }
+
+    /**
+     * The cached listing, or null. Rows listed by {@link #getStaleStockIds} may show an old
+     * stock level until {@link #stockRefreshed} is called for them.
+     */
+    public synchronized ColumnarProductStore getListing() {
+        if (listing != null && TTL_SECONDS > 0
+                && System.nanoTime() - listingLoadedAt > TimeUnit.SECONDS.toNanos(TTL_SECONDS)) {
+            listing = null;
+            listingExpirations++;
+        }
+        if (listing == null) {
+            listingMisses++;
+            return null;
+        }
+        listingHits++;
+        return listing;
+    }
+
+    public synchronized void putListing(ColumnarProductStore loaded, long stamp) {
+        if (lastStructuralChange > stamp) {
+            return;
+        }
+        listingLoadedAt = System.nanoTime();
+        listing = loaded;
+        // stock changes made before the load started are already in it
+        staleStock.values().removeIf(changedAt -> changedAt <= stamp);
+    }
+
+    public synchronized List<Integer> getStaleStockIds() {
+        return new ArrayList<>(staleStock.keySet());
+    }
+
+    // the stale ones among productIds, for a read that only shows those rows
+    public synchronized List<Integer> getStaleStockIds(int[] productIds) {
+        List<Integer> stale = new ArrayList<>();
+        for (int productId : productIds) {
+            if (staleStock.containsKey(productId)) {
+                stale.add(productId);
+            }
+        }
+        return stale;
+    }
+
+    // stock levels (product id -> stock) read from the database after taking stamp
+    public synchronized void stockRefreshed(Map<Integer, Integer> stockById, long stamp) {
+        for (Map.Entry<Integer, Integer> e : stockById.entrySet()) {
+            Long changedAt = staleStock.get(e.getKey());
+            // a row that changed again while being read stays stale
+            if (changedAt != null && changedAt <= stamp) {
+                if (listing != null) {
+                    listing.updateStock(e.getKey(), e.getValue());
+                }
+                staleStock.remove(e.getKey());
+            }
+        }
+    }
+
+    public synchronized void stockChanged(int productId) {
+        long changedAt = changed(productId);
+        // recorded even without a listing, in case one is being loaded right now
+        staleStock.put(productId, changedAt);
+    }
+
+    // a product was added or edited; the listing takes the new values in place of the old row
+    public synchronized void productSaved(Product product) {
+        lastStructuralChange = changed(product.getId());
+        staleStock.remove(product.getId());
+        if (listing != null) {
+            listing = listing.merge(List.of(product), id -> true);
+        }
+    }
+
+    public synchronized void productRemoved(int productId) {
+        lastStructuralChange = changed(productId);
+        staleStock.remove(productId);
+        if (listing != null) {
+            listing = listing.merge(List.of(), id -> id != productId);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        lastStructuralChange = changes.incrementAndGet();
+        lastChanged.clear();
+        forgottenChangesUpTo = lastStructuralChange;
+        if (listing != null) {
+            listingDiscards++;
+        }
+        listing = null;
+        staleStock.clear();
+        products.clear();
+    }
+
+    public CacheStats getStats() {
+        return products.getStats();
+    }
+
+    // listing lookups; evictions count listings thrown away by bulk changes and size is its row count
+    public synchronized CacheStats getListingStats() {
+        return new CacheStats(listingHits, listingMisses, listingDiscards, listingExpirations,
+                listing != null ? listing.size() : 0);
+    }
+
+    private long changed(int productId) {
+        long changedAt = changes.incrementAndGet();
+        products.invalidate(productId);
+        // re-inserted so the map stays ordered by change
+        lastChanged.remove(productId);
+        lastChanged.put(productId, changedAt);
+        return changedAt;
+    }
+
+    private static Product copy(Product p) {
+        return new Product(p.getId(), p.getName(), p.getDescription(), p.getPrice(), p.getStock(), p.getCategory());
+    }
+}
@@ -0,0 +1,148 @@
+package com.onlineshopping.catalog;
+
+import com.onlineshopping.model.Product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * RFC 4180 style CSV for the product catalog, read and written one record at a time.
+ *
+ * Columns are product_id, name, description, price, stock, category. An empty product_id
+ * means a new product; quoted fields may contain commas, quotes and line breaks.
+ */
+public final class ProductCsv {
+    public static final String HEADER = "product_id,name,description,price,stock,category";
+    private static final int COLUMNS = 6;
+    private static final double MAX_PRICE = 99_999_999.99;
+
+    private ProductCsv() {}
+
+    /**
+     * Reads the next record, or returns null at end of input. A record spans several
+     * lines only when a quoted field contains a line break.
+     */
+    public static List<String> readRecord(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return null;
+        }
+
+        List<String> fields = new ArrayList<>(COLUMNS);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int i = 0;
+        while (true) {
+            if (i == line.length()) {
+                if (!quoted) {
+                    break;
+                }
+                // the quoted field continues on the next line
+                line = reader.readLine();
+                if (line == null) {
+                    throw new IOException("Unterminated quoted field at end of input");
+                }
+                field.append('\n');
+                i = 0;
+                continue;
+            }
+            char c = line.charAt(i++);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i < line.length() && line.charAt(i) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Converts a record into a product; throws IllegalArgumentException with a readable
+     * message if the record is malformed.
+     */
+    public static Product parse(List<String> fields) {
+        if (fields.size() != COLUMNS) {
+            throw new IllegalArgumentException("expected " + COLUMNS + " columns but found " + fields.size());
+        }
+        String name = fields.get(1).trim();
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("name is required");
+        }
+
+        String id = fields.get(0).trim();
+        double price = parseDouble(fields.get(3), "price");
+        // products.price is DECIMAL(10, 2); the negated form also rejects NaN
+        if (!(price >= 0 && price <= MAX_PRICE)) {
+            throw new IllegalArgumentException("price must be between 0 and " + MAX_PRICE);
+        }
+        int stock = parseInt(fields.get(4), "stock");
+        if (stock < 0) {
+            throw new IllegalArgumentException("stock must not be negative");
+        }
+        String category = fields.get(5).trim();
+
+        Product product = new Product(name, fields.get(2), price, stock, category.isEmpty() ? null : category);
+        if (!id.isEmpty()) {
+            product.setId(parseInt(id, "product_id"));
+        }
+        return product;
+    }
+
+    public static void write(Writer out, Product product) throws IOException {
+        out.write(String.valueOf(product.getId()));
+        out.write(',');
+        out.write(quote(product.getName()));
+        out.write(',');
+        out.write(quote(product.getDescription()));
+        out.write(',');
+        out.write(String.format(Locale.ROOT, "%.2f", product.getPrice()));
+        out.write(',');
+        out.write(String.valueOf(product.getStock()));
+        out.write(',');
+        out.write(quote(product.getCategory()));
+        out.write('\n');
+    }
+
+    private static double parseDouble(String text, String column) {
+        try {
+            return Double.parseDouble(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a number: \"" + text + "\"");
+        }
+    }
+
+    private static int parseInt(String text, String column) {
+        try {
+            return Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + " is not a whole number: \"" + text + "\"");
+        }
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
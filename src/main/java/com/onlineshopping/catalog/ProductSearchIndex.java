@@ -0,0 +1,322 @@
+package com.onlineshopping.catalog;
+
+import com.onlineshopping.model.Product;
+import com.onlineshopping.model.ProductInfo;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * In-memory inverted index over product name, category and description, ranked with BM25.
+ *
+ * Text is split on anything that is not a letter or digit and case-folded. Every query
+ * term must match (as a whole term or as a prefix of one); whole-term matches outrank
+ * prefix matches, and hits in the name count more than hits in the category or description.
+ * Terms shorter than {@code catalog.search.minPrefixLength} are not expanded over the whole
+ * index: they match as prefixes only within what the longer terms matched, and as whole
+ * terms when the query has nothing longer.
+ * ProductDB keeps the index current as products are added, updated and removed.
+ */
+public class ProductSearchIndex {
+    private static final float NAME_BOOST = 3.0f;
+    private static final float CATEGORY_BOOST = 1.5f;
+    private static final float DESCRIPTION_BOOST = 1.0f;
+    private static final float PREFIX_PENALTY = 0.6f;
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int MIN_PREFIX_LENGTH = Integer.getInteger("catalog.search.minPrefixLength", 3);
+
+    private static ProductSearchIndex instance;
+
+    // term -> (product id -> boosted term frequency); sorted so prefixes are a range scan
+    private final TreeMap<String, Map<Integer, Float>> postings = new TreeMap<>();
+    // product id -> its distinct terms and boosted length, needed to unindex and to score
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private double totalLength;
+
+    private final Object buildMonitor = new Object();
+    private volatile boolean built;
+    private boolean building;
+    private final Set<Integer> touchedDuringBuild = new HashSet<>();
+
+    private ProductSearchIndex() {}
+
+    public static synchronized ProductSearchIndex getInstance() {
+        if (instance == null) {
+            instance = new ProductSearchIndex();
+        }
+        return instance;
+    }
+
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Builds the index from {@code catalog} on first use; the loader may return null if it
+     * failed. Products written through {@link #index}/{@link #remove} while the snapshot is
+     * being read are newer than the snapshot, so the snapshot's copy of them is skipped.
+     */
+    public void ensureBuilt(Supplier<? extends ProductSource> catalog) {
+        if (built) {
+            return;
+        }
+        synchronized (buildMonitor) {
+            if (built) {
+                return;
+            }
+            setBuilding(true);
+            try {
+                ProductSource products = catalog.get();
+                if (products == null) {
+                    return;
+                }
+                products.forEach(product -> {
+                    lock.writeLock().lock();
+                    try {
+                        if (!touchedDuringBuild.contains(product.getId()) && !documents.containsKey(product.getId())) {
+                            add(product);
+                        }
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                });
+                built = true;
+            } finally {
+                setBuilding(false);
+            }
+        }
+    }
+
+    // drops everything so the next ensureBuilt reloads, used after bulk catalog changes
+    public void reset() {
+        synchronized (buildMonitor) {
+            lock.writeLock().lock();
+            try {
+                postings.clear();
+                documents.clear();
+                totalLength = 0;
+                built = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void setBuilding(boolean value) {
+        lock.writeLock().lock();
+        try {
+            building = value;
+            touchedDuringBuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                touchedDuringBuild.add(product.getId());
+            }
+            unindex(product.getId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int productId) {
+        lock.writeLock().lock();
+        try {
+            if (building) {
+                touchedDuringBuild.add(productId);
+            }
+            unindex(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of the best {@code limit} matches, most relevant first.
+     */
+    public List<Integer> search(String query, int limit) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int docCount = documents.size();
+            if (docCount == 0) {
+                return List.of();
+            }
+            double avgLength = totalLength / docCount;
+
+            // expandable terms first, so the short ones only have to be checked against their matches
+            List<String> ordered = new ArrayList<>(new HashSet<>(terms));
+            ordered.sort(Comparator.comparing(term -> term.length() < MIN_PREFIX_LENGTH));
+
+            Map<Integer, Double> scores = null;
+            for (String term : ordered) {
+                Map<Integer, Double> termScores = scores == null || term.length() >= MIN_PREFIX_LENGTH
+                        ? scoreTerm(term, docCount, avgLength)
+                        : scoreTermWithin(term, scores.keySet(), docCount, avgLength);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    // every query term has to match
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<Integer, Double> e : scores.entrySet()) {
+                        e.setValue(e.getValue() + termScores.get(e.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<Map.Entry<Integer, Double>> ranked = new ArrayList<>(scores.entrySet());
+            ranked.sort((a, b) -> {
+                int byScore = Double.compare(b.getValue(), a.getValue());
+                return byScore != 0 ? byScore : Integer.compare(a.getKey(), b.getKey());
+            });
+
+            List<Integer> ids = new ArrayList<>(Math.min(limit, ranked.size()));
+            for (int i = 0; i < ranked.size() && i < limit; i++) {
+                ids.add(ranked.get(i).getKey());
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // best BM25 score per document over the exact term and, if it is long enough, every indexed term it prefixes
+    private Map<Integer, Double> scoreTerm(String term, int docCount, double avgLength) {
+        Map<Integer, Double> best = new HashMap<>();
+        SortedMap<String, Map<Integer, Float>> matches = term.length() >= MIN_PREFIX_LENGTH
+                ? postings.subMap(term, term + Character.MAX_VALUE)
+                : postings.subMap(term, true, term, true);
+        for (Map.Entry<String, Map<Integer, Float>> match : matches.entrySet()) {
+            Map<Integer, Float> docs = match.getValue();
+            double weight = match.getKey().equals(term) ? 1.0 : PREFIX_PENALTY;
+            for (Map.Entry<Integer, Float> posting : docs.entrySet()) {
+                double length = documents.get(posting.getKey()).length;
+                best.merge(posting.getKey(),
+                        bm25(weight, posting.getValue(), length, docs.size(), docCount, avgLength), Math::max);
+            }
+        }
+        return best;
+    }
+
+    // the same, for a short term, walking the terms of the candidate documents instead of the index
+    private Map<Integer, Double> scoreTermWithin(String term, Set<Integer> candidates, int docCount, double avgLength) {
+        Map<Integer, Double> best = new HashMap<>();
+        for (int productId : candidates) {
+            Document doc = documents.get(productId);
+            for (String docTerm : doc.terms) {
+                if (docTerm.startsWith(term)) {
+                    Map<Integer, Float> docs = postings.get(docTerm);
+                    double weight = docTerm.equals(term) ? 1.0 : PREFIX_PENALTY;
+                    best.merge(productId,
+                            bm25(weight, docs.get(productId), doc.length, docs.size(), docCount, avgLength), Math::max);
+                }
+            }
+        }
+        return best;
+    }
+
+    private static double bm25(double weight, double tf, double length, int docFrequency, int docCount, double avgLength) {
+        double idf = Math.log(1 + (docCount - docFrequency + 0.5) / (docFrequency + 0.5));
+        return weight * idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / avgLength));
+    }
+
+    private void add(ProductInfo product) {
+        Map<String, Float> frequencies = new HashMap<>();
+        float length = 0;
+        length += addField(frequencies, product.getName(), NAME_BOOST);
+        length += addField(frequencies, product.getCategory(), CATEGORY_BOOST);
+        length += addField(frequencies, product.getDescription(), DESCRIPTION_BOOST);
+
+        for (Map.Entry<String, Float> e : frequencies.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(product.getId(), e.getValue());
+        }
+        documents.put(product.getId(), new Document(frequencies.keySet().toArray(new String[0]), length));
+        totalLength += length;
+    }
+
+    private void unindex(int productId) {
+        Document doc = documents.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        for (String term : doc.terms) {
+            Map<Integer, Float> docs = postings.get(term);
+            docs.remove(productId);
+            if (docs.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+        totalLength -= doc.length;
+    }
+
+    private static float addField(Map<String, Float> frequencies, String text, float boost) {
+        List<String> tokens = tokenize(text);
+        for (String token : tokens) {
+            frequencies.merge(token, boost, Float::sum);
+        }
+        return tokens.size() * boost;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static final class Document {
+        final String[] terms;
+        final float length;
+
+        Document(String[] terms, float length) {
+            this.terms = terms;
+            this.length = length;
+        }
+    }
+}
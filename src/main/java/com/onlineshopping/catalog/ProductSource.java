@@ -0,0 +1,34 @@
+package com.onlineshopping.catalog;
+
+import com.onlineshopping.model.ProductInfo;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * A read-only catalog that is scanned row by row, which is all the in-memory indexes need
+ * to build themselves.
+ */
+public interface ProductSource {
+    int size();
+
+    /**
+     * Visits every product. An implementation may pass the same object repositioned on each
+     * row, so {@code action} must copy what it keeps rather than keep the product itself.
+     */
+    void forEach(Consumer<? super ProductInfo> action);
+
+    static ProductSource of(Collection<? extends ProductInfo> products) {
+        return new ProductSource() {
+            @Override
+            public int size() {
+                return products.size();
+            }
+
+            @Override
+            public void forEach(Consumer<? super ProductInfo> action) {
+                products.forEach(action);
+            }
+        };
+    }
+}
@@ -0,0 +1,41 @@
+package com.onlineshopping.catalog;
+
+import com.onlineshopping.model.ProductInfo;
+
+/**
+ * One row of a {@link ColumnarProductStore}. It holds only the store and a row number and
+ * every getter reads the columns, so a single view can be moved along the rows of a scan.
+ */
+final class ProductView implements ProductInfo {
+    private final ColumnarProductStore store;
+    int row;
+
+    ProductView(ColumnarProductStore store, int row) {
+        this.store = store;
+        this.row = row;
+    }
+
+    @Override
+    public int getId() { return store.idAt(row); }
+
+    @Override
+    public String getName() { return store.nameAt(row); }
+
+    @Override
+    public String getDescription() { return store.descriptionAt(row); }
+
+    @Override
+    public double getPrice() { return store.priceAt(row); }
+
+    @Override
+    public int getStock() { return store.stockAt(row); }
+
+    @Override
+    public String getCategory() { return store.categoryAt(row); }
+
+    @Override
+    public String toString() {
+        return String.format("Product{id=%d, name='%s', description='%s', price=%.2f, stock=%d, category='%s'}",
+                getId(), getName(), getDescription(), getPrice(), getStock(), getCategory());
+    }
+}
@@ -0,0 +1,308 @@
+package com.onlineshopping.database;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded pool of physical JDBC connections.
+ *
+ * Callers borrow a connection with {@link #borrow()} and give it back by closing it;
+ * the handle they receive is a proxy whose {@code close()} returns the physical
+ * connection to the pool instead of closing the socket. Each physical connection also
+ * keeps a {@link StatementCache}, so {@code prepareCall(sql)} on a handle reuses the
+ * statement prepared by an earlier borrower of the same connection.
+ */
+class ConnectionPool {
+    interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    // upper bounds (ms) of the checkout wait-time histogram buckets; the last bucket is unbounded
+    static final long[] WAIT_BUCKETS_MS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+
+    // idle connections used more recently than this are handed out without a validation ping
+    private static final long VALIDATION_INTERVAL_MS = 1000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final ConnectionFactory factory;
+    private final int minSize;
+    private final int maxSize;
+    private final long checkoutTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long leakThresholdMs;
+    private final int statementCacheSize;
+
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final AtomicLongArray waitHistogram = new AtomicLongArray(WAIT_BUCKETS_MS.length + 1);
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    ConnectionPool(ConnectionFactory factory, int minSize, int maxSize,
+                   long checkoutTimeoutMs, long idleTimeoutMs, long leakThresholdMs,
+                   int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.factory = factory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.checkoutTimeoutMs = checkoutTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMs, leakThresholdMs > 0 ? leakThresholdMs : idleTimeoutMs) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        waiters.incrementAndGet();
+        try {
+            acquired = permits.tryAcquire(checkoutTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        } finally {
+            waiters.decrementAndGet();
+            recordWait(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+
+        if (!acquired) {
+            throw new SQLTimeoutException("Timed out after " + checkoutTimeoutMs
+                    + "ms waiting for a database connection (max pool size " + maxSize + ")");
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (pooled.validate()) {
+                    break;
+                }
+                pooled.closePhysical();
+            }
+            if (pooled == null) {
+                pooled = new PooledConnection(factory.create());
+            }
+            pooled.markBorrowed(leakThresholdMs > 0);
+            active.add(pooled);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        active.remove(pooled);
+        try {
+            if (closed || !pooled.reset()) {
+                pooled.closePhysical();
+            } else {
+                // LIFO keeps the hottest connections in use and lets surplus ones age out
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void recordWait(long waitMs) {
+        int bucket = 0;
+        while (bucket < WAIT_BUCKETS_MS.length && waitMs > WAIT_BUCKETS_MS[bucket]) {
+            bucket++;
+        }
+        waitHistogram.incrementAndGet(bucket);
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        // evict connections idle for too long, oldest first, but never below minSize
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() + active.size() > minSize) {
+            PooledConnection pooled = it.next();
+            if (now - pooled.lastReturnedAt > idleTimeoutMs && idle.removeFirstOccurrence(pooled)) {
+                pooled.closePhysical();
+            }
+        }
+
+        if (leakThresholdMs > 0) {
+            for (PooledConnection pooled : active) {
+                if (!pooled.leakReported && now - pooled.borrowedAt > leakThresholdMs) {
+                    pooled.leakReported = true;
+                    System.err.printf("Possible connection leak: connection checked out for %dms%n",
+                            now - pooled.borrowedAt);
+                    if (pooled.borrowSite != null) {
+                        pooled.borrowSite.printStackTrace();
+                    }
+                }
+            }
+        }
+
+        try {
+            fill();
+        } catch (SQLException e) {
+            System.err.println("Error replenishing connection pool: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens connections until the pool holds minSize. Failing here leaves the pool usable:
+     * borrowers open connections on demand and the housekeeper keeps retrying the fill.
+     */
+    void fill() throws SQLException {
+        while (!closed && idle.size() + active.size() < minSize) {
+            idle.offerLast(new PooledConnection(factory.create()));
+        }
+    }
+
+    PoolStats getStats() {
+        long[] counts = new long[waitHistogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = waitHistogram.get(i);
+        }
+        return new PoolStats(active.size(), idle.size(), waiters.get(), maxSize, WAIT_BUCKETS_MS, counts,
+                statementCacheHits.sum(), statementCacheMisses.sum());
+    }
+
+    void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+        // checked-out connections are closed as their borrowers return them
+    }
+
+    private final class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private volatile long borrowedAt;
+        private volatile long lastReturnedAt = System.currentTimeMillis();
+        private volatile Throwable borrowSite;
+        private volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = new StatementCache(physical, statementCacheSize,
+                    statementCacheHits, statementCacheMisses);
+        }
+
+        boolean validate() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (System.currentTimeMillis() - lastReturnedAt < VALIDATION_INTERVAL_MS) {
+                    return true;
+                }
+                return physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void markBorrowed(boolean captureSite) {
+            borrowedAt = System.currentTimeMillis();
+            borrowSite = captureSite ? new Exception("Connection borrowed here") : null;
+            leakReported = false;
+        }
+
+        // undo any session state a borrower left behind; false means the connection is unusable
+        boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                statementCache.releaseAll();
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                lastReturnedAt = System.currentTimeMillis();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            statementCache.closeAll();
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing pooled connection: " + e.getMessage());
+            }
+        }
+
+        // each checkout gets its own handle so a stale reference cannot touch a connection
+        // that has since been lent to someone else
+        Connection newHandle() {
+            AtomicInteger state = new AtomicInteger();
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (state.compareAndSet(0, 1)) {
+                                release(this);
+                            }
+                            return null;
+                        case "isClosed":
+                            return state.get() != 0 || physical.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "toString":
+                            return "Pooled" + physical;
+                        default:
+                            if (state.get() != 0) {
+                                throw new SQLException("Connection has already been returned to the pool");
+                            }
+                            if (method.getName().equals("prepareCall") && args.length == 1) {
+                                return statementCache.prepareCall((String) args[0]);
+                            }
+                            try {
+                                return method.invoke(physical, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+        }
+    }
+}
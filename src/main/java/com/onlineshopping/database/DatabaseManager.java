@@ -3,7 +3,6 @@ package com.onlineshopping.database;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.sql.Statement;
 
 public class DatabaseManager {
     // MySQL connection settings - UPDATE THESE FOR YOUR LOCAL SETUP
@@ -11,24 +10,44 @@ public class DatabaseManager {
     private static final String DB_PORT = "3306";
     private static final String DB_NAME = "online_shopping";
     private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = "123456"; 
+    private static final String DB_PASSWORD = "123456";
 
     private static final String DATABASE_URL = String.format(
-        "jdbc:mysql://%s:%s/%s?createDatabaseIfNotExist=true&useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC",
+        "jdbc:mysql://%s:%s/%s?createDatabaseIfNotExist=true&useSSL=false&allowPublicKeyRetrieval=true&serverTimezone=UTC"
+        // send JDBC batches as multi-row INSERTs instead of one round trip per row
+        + "&rewriteBatchedStatements=true",
         DB_HOST, DB_PORT, DB_NAME
     );
-    
+
+    // Connection pool settings - override with -Ddb.pool.<name>=<value>
+    private static final int POOL_MIN_SIZE = Integer.getInteger("db.pool.minSize", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("db.pool.maxSize", 10);
+    private static final long CHECKOUT_TIMEOUT_MS = Long.getLong("db.pool.checkoutTimeoutMs", 5_000);
+    private static final long IDLE_TIMEOUT_MS = Long.getLong("db.pool.idleTimeoutMs", 300_000);
+    private static final long LEAK_THRESHOLD_MS = Long.getLong("db.pool.leakThresholdMs", 30_000);
+    // prepared CALL statements kept per connection; 0 disables the cache
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("db.pool.statementCacheSize", 64);
+
     private static DatabaseManager instance;
-    private Connection connection;
+    private ConnectionPool pool;
 
     private DatabaseManager() {
         try {
             Class.forName("com.mysql.cj.jdbc.Driver");
-            connection = DriverManager.getConnection(DATABASE_URL, DB_USER, DB_PASSWORD);
-            System.out.println("Connected to MySQL database: " + DB_NAME);
+            pool = new ConnectionPool(
+                () -> DriverManager.getConnection(DATABASE_URL, DB_USER, DB_PASSWORD),
+                POOL_MIN_SIZE, POOL_MAX_SIZE, CHECKOUT_TIMEOUT_MS, IDLE_TIMEOUT_MS, LEAK_THRESHOLD_MS,
+                STATEMENT_CACHE_SIZE
+            );
         } catch (ClassNotFoundException e) {
             System.err.println("MySQL JDBC Driver not found: " + e.getMessage());
+            return;
+        }
+        try {
+            pool.fill();
+            System.out.println("Connected to MySQL database: " + DB_NAME);
         } catch (SQLException e) {
+            // the pool stays in place and reconnects on later calls once MySQL is reachable
             System.err.println("Error connecting to database: " + e.getMessage());
         }
     }
@@ -40,24 +59,24 @@ public class DatabaseManager {
         return instance;
     }
 
-    public Connection getConnection() {
-        try {
-            if (connection == null || connection.isClosed()) {
-                connection = DriverManager.getConnection(DATABASE_URL, DB_USER, DB_PASSWORD);
-            }
-        } catch (SQLException e) {
-            System.err.println("Error getting database connection: " + e.getMessage());
+    /**
+     * Borrows a connection from the pool. Closing the returned connection hands it
+     * back to the pool, so callers must always close it (try-with-resources).
+     */
+    public Connection getConnection() throws SQLException {
+        if (pool == null) {
+            throw new SQLException("Database is not available");
         }
-        return connection;
+        return pool.borrow();
+    }
+
+    public PoolStats getPoolStats() {
+        return pool != null ? pool.getStats() : null;
     }
 
     public void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
-        } catch (SQLException e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
+        if (pool != null) {
+            pool.close();
         }
     }
 }
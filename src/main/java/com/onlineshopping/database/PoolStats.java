@@ -0,0 +1,59 @@
+package com.onlineshopping.database;
+
+/**
+ * Point-in-time snapshot of the connection pool, used to size it under load.
+ */
+public class PoolStats {
+    private final int active;
+    private final int idle;
+    private final int waiters;
+    private final int maxSize;
+    private final long[] waitBucketsMs;
+    private final long[] waitCounts;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    PoolStats(int active, int idle, int waiters, int maxSize, long[] waitBucketsMs, long[] waitCounts,
+              long statementCacheHits, long statementCacheMisses) {
+        this.active = active;
+        this.idle = idle;
+        this.waiters = waiters;
+        this.maxSize = maxSize;
+        this.waitBucketsMs = waitBucketsMs.clone();
+        this.waitCounts = waitCounts.clone();
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getWaiters() { return waiters; }
+    public int getMaxSize() { return maxSize; }
+
+    // waitCounts[i] counts checkouts that waited at most waitBucketsMs[i];
+    // the extra last entry counts everything slower than the largest bound
+    public long[] getWaitBucketsMs() { return waitBucketsMs.clone(); }
+    public long[] getWaitCounts() { return waitCounts.clone(); }
+
+    public long getStatementCacheHits() { return statementCacheHits; }
+    public long getStatementCacheMisses() { return statementCacheMisses; }
+
+    public double getStatementCacheHitRatio() {
+        long lookups = statementCacheHits + statementCacheMisses;
+        return lookups == 0 ? 0.0 : (double) statementCacheHits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder histogram = new StringBuilder();
+        for (int i = 0; i < waitCounts.length; i++) {
+            if (i > 0) histogram.append(", ");
+            histogram.append(i < waitBucketsMs.length ? "<=" + waitBucketsMs[i] + "ms" : ">" + waitBucketsMs[i - 1] + "ms")
+                     .append('=').append(waitCounts[i]);
+        }
+        return String.format("PoolStats{active=%d, idle=%d, waiters=%d, maxSize=%d, waitTime=[%s], "
+                + "statementCache={hits=%d, misses=%d, hitRatio=%.2f}}",
+                active, idle, waiters, maxSize, histogram,
+                statementCacheHits, statementCacheMisses, getStatementCacheHitRatio());
+    }
+}
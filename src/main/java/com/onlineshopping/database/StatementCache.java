@@ -0,0 +1,156 @@
+package com.onlineshopping.database;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of prepared {@link CallableStatement}s for one physical connection, keyed by SQL text.
+ *
+ * A pooled connection is only ever used by the thread that borrowed it, so the cache itself
+ * needs no locking; the hit/miss counters are shared by every connection in the pool.
+ */
+class StatementCache {
+    private final Connection physical;
+    private final int maxSize;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection physical, int maxSize, LongAdder hits, LongAdder misses) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    CallableStatement prepareCall(String sql) throws SQLException {
+        if (maxSize <= 0) {
+            misses.increment();
+            return physical.prepareCall(sql);
+        }
+
+        Entry entry = entries.get(sql);
+        if (entry != null && !entry.inUse) {
+            hits.increment();
+            return entry.checkout();
+        }
+
+        misses.increment();
+        CallableStatement statement = physical.prepareCall(sql);
+        if (entry != null) {
+            // the cached statement is still open further up the stack; hand out a throwaway one
+            return statement;
+        }
+
+        entry = new Entry(statement);
+        entries.put(sql, entry);
+        evictOverflow();
+        return entry.checkout();
+    }
+
+    // called when the connection goes back to the pool; borrowers may have leaked statements
+    void releaseAll() {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            if (entry.inUse) {
+                entry.checkin();
+            }
+        }
+    }
+
+    void closeAll() {
+        for (Entry entry : entries.values()) {
+            entry.closePhysical();
+        }
+        entries.clear();
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            if (!eldest.inUse) {
+                it.remove();
+                eldest.closePhysical();
+            }
+        }
+    }
+
+    private void discard(Entry entry) {
+        entries.values().remove(entry);
+        entry.closePhysical();
+    }
+
+    private final class Entry {
+        private final CallableStatement statement;
+        private boolean inUse;
+        // bumped on every checkout so a handle kept past close() cannot drive the next borrower's statement
+        private int generation;
+
+        Entry(CallableStatement statement) {
+            this.statement = statement;
+        }
+
+        CallableStatement checkout() {
+            inUse = true;
+            int handleGeneration = ++generation;
+            return (CallableStatement) Proxy.newProxyInstance(
+                CallableStatement.class.getClassLoader(),
+                new Class<?>[] {CallableStatement.class},
+                (proxy, method, args) -> {
+                    boolean open = inUse && generation == handleGeneration;
+                    switch (method.getName()) {
+                        case "close":
+                            if (open) {
+                                checkin();
+                            }
+                            return null;
+                        case "isClosed":
+                            return !open || statement.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            if (!open) {
+                                throw new SQLException("Statement is closed");
+                            }
+                            try {
+                                return method.invoke(statement, args);
+                            } catch (InvocationTargetException e) {
+                                throw e.getCause();
+                            }
+                    }
+                });
+        }
+
+        void checkin() {
+            try {
+                ResultSet rs = statement.getResultSet();
+                if (rs != null) {
+                    rs.close();
+                }
+                statement.clearParameters();
+                inUse = false;
+            } catch (SQLException e) {
+                discard(this);
+            }
+        }
+
+        void closePhysical() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing cached statement: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.onlineshopping.dbquery;
 import com.onlineshopping.database.DatabaseManager;
 import com.onlineshopping.model.Customer;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,7 +19,8 @@ public class CustomerDB {
     public boolean addCustomer(Customer customer) {
         String sql = "{CALL add_customer(?, ?, ?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setString(1, customer.getUsername());
             cstmt.setString(2, customer.getPassword());
             cstmt.registerOutParameter(3, Types.INTEGER);
@@ -36,7 +39,8 @@ public class CustomerDB {
     public boolean updatePassword(int customerId, String newPassword) {
         String sql = "{CALL update_password(?, ?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, customerId);
             cstmt.setString(2, newPassword);
             
@@ -51,7 +55,8 @@ public class CustomerDB {
     public Customer getCustomerByUsername(String username) {
         String sql = "{CALL get_customer_by_username(?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setString(1, username);
             ResultSet rs = cstmt.executeQuery();
             
@@ -68,18 +73,44 @@ public class CustomerDB {
         return null;
     }
 
-    public boolean validatePassword(String username, String password) {
+    // one lookup: returns the customer if the password matches, otherwise null
+    public Customer authenticate(String username, String password) {
         Customer customer = getCustomerByUsername(username);
-        if (customer != null) {
-            return customer.getPassword().equals(password);
+        if (customer != null && password != null && MessageDigest.isEqual(
+                customer.getPassword().getBytes(StandardCharsets.UTF_8), password.getBytes(StandardCharsets.UTF_8))) {
+            return customer;
         }
-        return false;
+        return null;
+    }
+
+    public boolean validatePassword(String username, String password) {
+        return authenticate(username, password) != null;
+    }
+
+    // every registered username (null on error), used to build the registration filter
+    public List<String> getAllUsernames() {
+        List<String> usernames = new ArrayList<>();
+        String sql = "{CALL get_all_usernames()}";
+        
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql);
+             ResultSet rs = cstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                usernames.add(rs.getString("username"));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting usernames: " + e.getMessage());
+            return null;
+        }
+        return usernames;
     }
 
     public boolean usernameExists(String username) {
         String sql = "{CALL customer_exists(?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setString(1, username);
             ResultSet rs = cstmt.executeQuery();
             if (rs.next()) {
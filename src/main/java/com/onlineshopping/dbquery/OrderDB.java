@@ -1,42 +1,63 @@
 package com.onlineshopping.dbquery;
 
+import com.onlineshopping.catalog.ProductCache;
 import com.onlineshopping.database.DatabaseManager;
+import com.onlineshopping.model.CartUpdate;
 import com.onlineshopping.model.Order;
 import com.onlineshopping.model.OrderItem;
+import com.onlineshopping.model.OrderSummary;
+import com.onlineshopping.model.Page;
 
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class OrderDB {
     private final DatabaseManager dbManager;
+    private final ProductCache productCache;
 
     public OrderDB() {
         this.dbManager = DatabaseManager.getInstance();
+        this.productCache = ProductCache.getInstance();
     }
 
+    /**
+     * Inserts the order header and all of its items as one transaction; the items go out
+     * as a single JDBC batch and their generated ids are written back onto the OrderItems.
+     */
     public boolean addOrder(Order order) {
         String sql = "{CALL add_order(?, ?, ?, ?, ?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
-            cstmt.setInt(1, order.getCustomerId());
-            cstmt.setTimestamp(2, Timestamp.valueOf(order.getOrderDate()));
-            cstmt.setString(3, order.getStatus().name());
-            cstmt.setDouble(4, order.getTotalAmount());
-            cstmt.registerOutParameter(5, Types.INTEGER);
-            
-            cstmt.execute();
-            
-            int orderId = cstmt.getInt(5);
-            order.setId(orderId);
-            
-            // Add order items
-            for (OrderItem item : order.getItems()) {
-                addOrderItem(orderId, item);
+        try (Connection conn = dbManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (CallableStatement cstmt = conn.prepareCall(sql)) {
+                cstmt.setInt(1, order.getCustomerId());
+                cstmt.setTimestamp(2, Timestamp.valueOf(order.getOrderDate()));
+                cstmt.setString(3, order.getStatus().name());
+                cstmt.setDouble(4, order.getTotalAmount());
+                cstmt.registerOutParameter(5, Types.INTEGER);
+                
+                cstmt.execute();
+                
+                int orderId = cstmt.getInt(5);
+                order.setId(orderId);
+                for (OrderItem item : order.getItems()) {
+                    item.setOrderId(orderId);
+                }
+                
+                addOrderItems(conn, order.getItems());
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                clearGeneratedIds(List.of(order));
+                throw e;
             }
-            
-            return true;
         } catch (SQLException e) {
             System.err.println("Error adding order: " + e.getMessage());
         }
@@ -46,7 +67,8 @@ public class OrderDB {
     public boolean updateOrderStatus(int orderId, Order.OrderStatus newStatus) {
         String sql = "{CALL update_order_status(?, ?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, orderId);
             cstmt.setString(2, newStatus.name());
             
@@ -61,7 +83,8 @@ public class OrderDB {
     public boolean updateOrderTotal(int orderId, double newTotal) {
         String sql = "{CALL update_order_total(?, ?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, orderId);
             cstmt.setDouble(2, newTotal);
             
@@ -76,7 +99,8 @@ public class OrderDB {
     public Order getOrderById(int orderId) {
         String sql = "{CALL get_order_by_id(?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, orderId);
             ResultSet rs = cstmt.executeQuery();
             
@@ -90,7 +114,7 @@ public class OrderDB {
                 );
                 
                 // Load order items
-                order.setItems(getOrderItems(orderId));
+                order.setItems(getOrderItems(conn, orderId));
                 
                 return order;
             }
@@ -102,35 +126,94 @@ public class OrderDB {
 
     public List<Order> getOrdersByCustomerId(int customerId) {
         List<Order> orders = new ArrayList<>();
-        String sql = "{CALL get_orders_by_customer_id(?)}";
+        String sql = "{CALL get_orders_with_items_by_customer_id(?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, customerId);
             ResultSet rs = cstmt.executeQuery();
             
+            readOrdersWithItems(rs, orders);
+        } catch (SQLException e) {
+            System.err.println("Error getting orders by customer: " + e.getMessage());
+        }
+        return orders;
+    }
+
+    /**
+     * Returns up to {@code pageSize} orders older than the cursor in {@code pageToken}
+     * (newest first), or the newest orders when the token is null.
+     */
+    public Page<Order> getOrdersPageByCustomerId(int customerId, String pageToken, int pageSize) {
+        List<Order> orders = new ArrayList<>();
+        String sql = "{CALL get_orders_page_by_customer_id(?, ?, ?, ?)}";
+        
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
+            cstmt.setInt(1, customerId);
+            bindCursor(cstmt, 2, pageToken);
+            // one extra row tells us whether another page exists
+            cstmt.setInt(4, pageSize + 1);
+            ResultSet rs = cstmt.executeQuery();
+            
+            readOrdersWithItems(rs, orders);
+        } catch (SQLException e) {
+            System.err.println("Error getting order page: " + e.getMessage());
+            return new Page<>(List.of(), null);
+        }
+
+        String nextToken = null;
+        if (orders.size() > pageSize) {
+            orders.remove(orders.size() - 1);
+            Order last = orders.get(orders.size() - 1);
+            nextToken = encodeCursor(last.getOrderDate(), last.getId());
+        }
+        return new Page<>(orders, nextToken);
+    }
+
+    /**
+     * Summary-only variant of {@link #getOrdersPageByCustomerId}: one row per order with its
+     * item count, and no {@link OrderItem}s are loaded. Page tokens are interchangeable.
+     */
+    public Page<OrderSummary> getOrderSummariesPageByCustomerId(int customerId, String pageToken, int pageSize) {
+        List<OrderSummary> summaries = new ArrayList<>();
+        String sql = "{CALL get_order_summaries_page_by_customer_id(?, ?, ?, ?)}";
+        
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
+            cstmt.setInt(1, customerId);
+            bindCursor(cstmt, 2, pageToken);
+            cstmt.setInt(4, pageSize + 1);
+            ResultSet rs = cstmt.executeQuery();
+            
             while (rs.next()) {
-                Order order = new Order(
+                summaries.add(new OrderSummary(
                     rs.getInt("order_id"),
-                    rs.getInt("customer_id"),
                     rs.getTimestamp("order_date").toLocalDateTime(),
                     Order.OrderStatus.valueOf(rs.getString("status")),
-                    rs.getDouble("total_amount")
-                );
-                
-                // Load order items
-                order.setItems(getOrderItems(order.getId()));
-                orders.add(order);
+                    rs.getDouble("total_amount"),
+                    rs.getInt("item_count")
+                ));
             }
         } catch (SQLException e) {
-            System.err.println("Error getting orders by customer: " + e.getMessage());
+            System.err.println("Error getting order summaries: " + e.getMessage());
+            return new Page<>(List.of(), null);
         }
-        return orders;
+
+        String nextToken = null;
+        if (summaries.size() > pageSize) {
+            summaries.remove(summaries.size() - 1);
+            OrderSummary last = summaries.get(summaries.size() - 1);
+            nextToken = encodeCursor(last.getOrderDate(), last.getId());
+        }
+        return new Page<>(summaries, nextToken);
     }
 
     public Order getActiveOrderByCustomerId(int customerId) {
         String sql = "{CALL get_active_order_by_customer_id(?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, customerId);
             ResultSet rs = cstmt.executeQuery();
             
@@ -144,7 +227,7 @@ public class OrderDB {
                 );
                 
                 // Load order items
-                order.setItems(getOrderItems(order.getId()));
+                order.setItems(getOrderItems(conn, order.getId()));
                 
                 return order;
             }
@@ -154,33 +237,50 @@ public class OrderDB {
         return null;
     }
 
-    private boolean addOrderItem(int orderId, OrderItem item) {
-        String sql = "{CALL add_order_item(?, ?, ?, ?, ?, ?)}";
+    // items must already carry their order id; runs on the caller's connection and transaction
+    private void addOrderItems(Connection conn, List<OrderItem> items) throws SQLException {
+        if (items.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO order_items (order_id, product_id, product_name, price, quantity) VALUES (?, ?, ?, ?, ?)";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
-            cstmt.setInt(1, orderId);
-            cstmt.setInt(2, item.getProductId());
-            cstmt.setString(3, item.getProductName());
-            cstmt.setDouble(4, item.getPrice());
-            cstmt.setInt(5, item.getQuantity());
-            cstmt.registerOutParameter(6, Types.INTEGER);
-            
-            cstmt.execute();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (OrderItem item : items) {
+                pstmt.setInt(1, item.getOrderId());
+                pstmt.setInt(2, item.getProductId());
+                pstmt.setString(3, item.getProductName());
+                pstmt.setDouble(4, item.getPrice());
+                pstmt.setInt(5, item.getQuantity());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
             
-            int itemId = cstmt.getInt(6);
-            item.setId(itemId);
-            item.setOrderId(orderId);
-            return true;
-        } catch (SQLException e) {
-            System.err.println("Error adding order item: " + e.getMessage());
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                for (OrderItem item : items) {
+                    if (!keys.next()) {
+                        throw new SQLException("Missing generated id for order item batch");
+                    }
+                    item.setId(keys.getInt(1));
+                }
+            }
+        }
+    }
+
+    private static void clearGeneratedIds(List<Order> orders) {
+        for (Order order : orders) {
+            order.setId(0);
+            for (OrderItem item : order.getItems()) {
+                item.setId(0);
+                item.setOrderId(0);
+            }
         }
-        return false;
     }
 
     public boolean addItemToOrder(int orderId, OrderItem item) {
         String sql = "{CALL add_item_to_order(?, ?, ?, ?, ?, ?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, orderId);
             cstmt.setInt(2, item.getProductId());
             cstmt.setString(3, item.getProductName());
@@ -200,10 +300,120 @@ public class OrderDB {
         return false;
     }
 
+    /**
+     * Adds {@code quantity} of a product to the customer's active order (opening one if
+     * needed) in a single round trip; stock check, line upsert, stock update and order total
+     * all happen in one transaction inside add_product_to_cart.
+     */
+    public CartUpdate addProductToCart(int customerId, int productId, int quantity) {
+        String sql = "{CALL add_product_to_cart(?, ?, ?, ?, ?)}";
+        
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
+            cstmt.setInt(1, customerId);
+            cstmt.setInt(2, productId);
+            cstmt.setInt(3, quantity);
+            cstmt.registerOutParameter(4, Types.INTEGER);
+            cstmt.registerOutParameter(5, Types.INTEGER);
+            
+            List<Order> cart = new ArrayList<>();
+            if (cstmt.execute()) {
+                readOrdersWithItems(cstmt.getResultSet(), cart);
+                productCache.stockChanged(productId);
+            }
+            
+            // OUT parameters are only readable once the result sets have been consumed
+            CartUpdate.Result result = switch (cstmt.getInt(4)) {
+                case 0 -> CartUpdate.Result.ADDED;
+                case 1 -> CartUpdate.Result.PRODUCT_NOT_FOUND;
+                default -> CartUpdate.Result.INSUFFICIENT_STOCK;
+            };
+            return new CartUpdate(result, cstmt.getInt(5), cart.isEmpty() ? null : cart.get(0));
+        } catch (SQLException e) {
+            System.err.println("Error adding product to cart: " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Removes a product from the customer's active order and restocks it in one transaction.
+     * Returns the quantity that went back into stock, 0 if the product was not in the cart
+     * and -1 on error.
+     */
+    public int removeProductFromCart(int customerId, int productId) {
+        String sql = "{CALL remove_product_from_cart(?, ?, ?)}";
+        
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
+            cstmt.setInt(1, customerId);
+            cstmt.setInt(2, productId);
+            cstmt.registerOutParameter(3, Types.INTEGER);
+            
+            cstmt.execute();
+            int removed = cstmt.getInt(3);
+            if (removed > 0) {
+                productCache.stockChanged(productId);
+            }
+            return removed;
+        } catch (SQLException e) {
+            System.err.println("Error removing product from cart: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Cancels the customer's active order and returns all of its quantities to stock in one
+     * transaction. Returns the cancelled order id, 0 if there was no active order and -1 on error.
+     */
+    public int cancelActiveOrder(int customerId) {
+        String sql = "{CALL cancel_active_order(?, ?)}";
+        
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
+            cstmt.setInt(1, customerId);
+            cstmt.registerOutParameter(2, Types.INTEGER);
+            
+            if (cstmt.execute()) {
+                ResultSet rs = cstmt.getResultSet();
+                while (rs.next()) {
+                    productCache.stockChanged(rs.getInt("product_id"));
+                }
+            }
+            return cstmt.getInt(2);
+        } catch (SQLException e) {
+            System.err.println("Error cancelling order: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    // product id -> quantity sold; empty if the customer had no active order with items, null on error
+    public Map<Integer, Integer> placeActiveOrder(int customerId) {
+        String sql = "{CALL place_active_order(?, ?)}";
+        Map<Integer, Integer> quantities = new HashMap<>();
+        
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
+            cstmt.setInt(1, customerId);
+            cstmt.registerOutParameter(2, Types.INTEGER);
+            
+            if (cstmt.execute()) {
+                ResultSet rs = cstmt.getResultSet();
+                while (rs.next()) {
+                    quantities.put(rs.getInt("product_id"), rs.getInt("quantity"));
+                }
+            }
+            return quantities;
+        } catch (SQLException e) {
+            System.err.println("Error placing order: " + e.getMessage());
+        }
+        return null;
+    }
+
     public boolean removeItemFromOrder(int orderId, int productId) {
         String sql = "{CALL remove_item_from_order(?, ?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, orderId);
             cstmt.setInt(2, productId);
             
@@ -218,7 +428,8 @@ public class OrderDB {
     private boolean updateOrderItemQuantity(int itemId, int newQuantity) {
         String sql = "{CALL update_order_item_quantity(?, ?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, itemId);
             cstmt.setInt(2, newQuantity);
             
@@ -230,11 +441,12 @@ public class OrderDB {
         return false;
     }
 
-    private List<OrderItem> getOrderItems(int orderId) {
+    // runs on the caller's connection so loading items never needs a second pooled connection
+    private List<OrderItem> getOrderItems(Connection conn, int orderId) {
         List<OrderItem> items = new ArrayList<>();
         String sql = "{CALL get_order_items(?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, orderId);
             ResultSet rs = cstmt.executeQuery();
             
@@ -253,4 +465,67 @@ public class OrderDB {
         }
         return items;
     }
+
+    // Builds orders from joined order/item rows in one pass. Rows of the same order must be
+    // adjacent; an order without items comes back as a single row with a NULL order_item_id.
+    private void readOrdersWithItems(ResultSet rs, List<Order> orders) throws SQLException {
+        Order current = null;
+        while (rs.next()) {
+            int orderId = rs.getInt("order_id");
+            if (current == null || current.getId() != orderId) {
+                current = new Order(
+                    orderId,
+                    rs.getInt("customer_id"),
+                    rs.getTimestamp("order_date").toLocalDateTime(),
+                    Order.OrderStatus.valueOf(rs.getString("status")),
+                    rs.getDouble("total_amount")
+                );
+                orders.add(current);
+            }
+
+            int itemId = rs.getInt("order_item_id");
+            if (!rs.wasNull()) {
+                current.getItems().add(new OrderItem(
+                    itemId,
+                    orderId,
+                    rs.getInt("product_id"),
+                    rs.getString("product_name"),
+                    rs.getDouble("price"),
+                    rs.getInt("quantity")
+                ));
+            }
+        }
+    }
+
+    // binds the (order_date, order_id) cursor to two consecutive parameters; NULLs mean "first page"
+    private static void bindCursor(CallableStatement cstmt, int index, String pageToken) throws SQLException {
+        if (pageToken == null) {
+            cstmt.setNull(index, Types.TIMESTAMP);
+            cstmt.setNull(index + 1, Types.INTEGER);
+        } else {
+            String[] cursor = decodeCursor(pageToken);
+            cstmt.setTimestamp(index, new Timestamp(Long.parseLong(cursor[0])));
+            cstmt.setInt(index + 1, Integer.parseInt(cursor[1]));
+        }
+    }
+
+    private static String encodeCursor(LocalDateTime orderDate, int orderId) {
+        String raw = Timestamp.valueOf(orderDate).getTime() + ":" + orderId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static String[] decodeCursor(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            String[] parts = raw.split(":");
+            if (parts.length == 2) {
+                Long.parseLong(parts[0]);
+                Integer.parseInt(parts[1]);
+                return parts;
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid page token: " + token);
+    }
 }
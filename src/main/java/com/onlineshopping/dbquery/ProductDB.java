@@ -1,23 +1,65 @@
 package com.onlineshopping.dbquery;
 
+import com.onlineshopping.catalog.CatalogSnapshot;
+import com.onlineshopping.catalog.CategoryFacets;
+import com.onlineshopping.catalog.ColumnarProductStore;
+import com.onlineshopping.catalog.ProductAutocomplete;
+import com.onlineshopping.catalog.ProductCache;
+import com.onlineshopping.catalog.ProductSearchIndex;
+import com.onlineshopping.catalog.ProductSource;
 import com.onlineshopping.database.DatabaseManager;
+import com.onlineshopping.model.BulkUpdateResult;
+import com.onlineshopping.model.Page;
 import com.onlineshopping.model.Product;
+import com.onlineshopping.model.ProductFilter;
+import com.onlineshopping.model.ProductSort;
 
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class ProductDB {
+    // statements sent per round trip by the bulk stock updates
+    private static final int BULK_BATCH_SIZE = 1000;
+    private static final long SNAPSHOT_RECONCILE_MARGIN_MS = 60_000;
+    // rows fetched per round trip by streamProducts; Integer.MIN_VALUE makes Connector/J stream
+    // rows one at a time, a positive value needs useCursorFetch=true on the connection URL
+    private static final int STREAM_FETCH_SIZE = Integer.getInteger("db.streamFetchSize", Integer.MIN_VALUE);
+
     private final DatabaseManager dbManager;
+    private final ProductCache productCache;
+    private final ProductSearchIndex searchIndex;
+    private final CategoryFacets categoryFacets;
+    private final ProductAutocomplete autocomplete;
 
     public ProductDB() {
         this.dbManager = DatabaseManager.getInstance();
+        this.productCache = ProductCache.getInstance();
+        this.searchIndex = ProductSearchIndex.getInstance();
+        this.categoryFacets = CategoryFacets.getInstance();
+        this.autocomplete = ProductAutocomplete.getInstance();
     }
 
     public boolean addProduct(Product product) {
         String sql = "{CALL add_product(?, ?, ?, ?, ?, ?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setString(1, product.getName());
             cstmt.setString(2, product.getDescription());
             cstmt.setDouble(3, product.getPrice());
@@ -29,6 +71,10 @@ public class ProductDB {
             
             int productId = cstmt.getInt(6);
             product.setId(productId);
+            productCache.productSaved(product);
+            searchIndex.index(product);
+            categoryFacets.productSaved(productId, product.getCategory());
+            autocomplete.productSaved(product);
             return true;
         } catch (SQLException e) {
             System.err.println("Error adding product: " + e.getMessage());
@@ -36,12 +82,67 @@ public class ProductDB {
         return false;
     }
 
+    /**
+     * Inserts or updates {@code products} in one transaction: rows with an id replace that
+     * product, rows without one are added. Only the product cache is dropped; the search,
+     * facet and autocomplete indexes keep their old contents until {@link #productsImported}
+     * is called, so an import of many chunks rebuilds them once.
+     */
+    public boolean upsertProducts(List<Product> products) {
+        String sql = "INSERT INTO products (product_id, name, description, price, stock, category) VALUES (?, ?, ?, ?, ?, ?) "
+                + "ON DUPLICATE KEY UPDATE name = VALUES(name), description = VALUES(description), "
+                + "price = VALUES(price), stock = VALUES(stock), category = VALUES(category)";
+        
+        try (Connection conn = dbManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (Product product : products) {
+                    if (product.getId() > 0) {
+                        pstmt.setInt(1, product.getId());
+                    } else {
+                        // NULL makes MySQL assign the next AUTO_INCREMENT id
+                        pstmt.setNull(1, Types.INTEGER);
+                    }
+                    pstmt.setString(2, product.getName());
+                    pstmt.setString(3, product.getDescription());
+                    pstmt.setDouble(4, product.getPrice());
+                    pstmt.setInt(5, product.getStock());
+                    pstmt.setString(6, product.getCategory());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error importing products: " + e.getMessage());
+            return false;
+        }
+        
+        productCache.invalidateAll();
+        return true;
+    }
+
+    // call once after a run of upsertProducts; the indexes are rebuilt on their next use
+    public void productsImported() {
+        searchIndex.reset();
+        categoryFacets.reset();
+        autocomplete.reset();
+    }
+
     public boolean removeProduct(int productId) {
         String sql = "{CALL remove_product(?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, productId);
             cstmt.execute();
+            productCache.productRemoved(productId);
+            searchIndex.remove(productId);
+            categoryFacets.productRemoved(productId);
+            autocomplete.productRemoved(productId);
             return true;
         } catch (SQLException e) {
             System.err.println("Error removing product: " + e.getMessage());
@@ -52,7 +153,8 @@ public class ProductDB {
     public boolean updateProduct(Product product) {
         String sql = "{CALL update_product(?, ?, ?, ?, ?, ?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, product.getId());
             cstmt.setString(2, product.getName());
             cstmt.setString(3, product.getDescription());
@@ -61,6 +163,10 @@ public class ProductDB {
             cstmt.setString(6, product.getCategory());
             
             cstmt.execute();
+            productCache.productSaved(product);
+            searchIndex.index(product);
+            categoryFacets.productSaved(product.getId(), product.getCategory());
+            autocomplete.productSaved(product);
             return true;
         } catch (SQLException e) {
             System.err.println("Error updating product: " + e.getMessage());
@@ -69,14 +175,21 @@ public class ProductDB {
     }
 
     public Product getProductById(int productId) {
+        Product cached = productCache.get(productId);
+        if (cached != null) {
+            return cached;
+        }
+
         String sql = "{CALL get_product_by_id(?)}";
+        long stamp = productCache.stamp();
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, productId);
             ResultSet rs = cstmt.executeQuery();
             
             if (rs.next()) {
-                return new Product(
+                Product product = new Product(
                     rs.getInt("product_id"),
                     rs.getString("name"),
                     rs.getString("description"),
@@ -84,6 +197,8 @@ public class ProductDB {
                     rs.getInt("stock"),
                     rs.getString("category")
                 );
+                productCache.put(product, stamp);
+                return product;
             }
         } catch (SQLException e) {
             System.err.println("Error getting product: " + e.getMessage());
@@ -91,34 +206,416 @@ public class ProductDB {
         return null;
     }
 
+    /**
+     * Looks up several products at once, in the order of {@code productIds}; ids that no
+     * longer exist are skipped. Cache misses are fetched together in a single call.
+     */
+    public List<Product> getProductsByIds(List<Integer> productIds) {
+        Map<Integer, Product> found = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (int productId : productIds) {
+            Product cached = productCache.get(productId);
+            if (cached != null) {
+                found.put(productId, cached);
+            } else {
+                missing.add(productId);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            String sql = "{CALL get_products_by_ids(?)}";
+            long stamp = productCache.stamp();
+            
+            try (Connection conn = dbManager.getConnection();
+                 CallableStatement cstmt = conn.prepareCall(sql)) {
+                cstmt.setString(1, toJsonArray(missing));
+                ResultSet rs = cstmt.executeQuery();
+                
+                while (rs.next()) {
+                    Product product = new Product(
+                        rs.getInt("product_id"),
+                        rs.getString("name"),
+                        rs.getString("description"),
+                        rs.getDouble("price"),
+                        rs.getInt("stock"),
+                        rs.getString("category")
+                    );
+                    productCache.put(product, stamp);
+                    found.put(product.getId(), product);
+                }
+            } catch (SQLException e) {
+                System.err.println("Error getting products by id: " + e.getMessage());
+            }
+        }
+
+        List<Product> products = new ArrayList<>(productIds.size());
+        for (int productId : productIds) {
+            Product product = found.get(productId);
+            if (product != null) {
+                products.add(product);
+            }
+        }
+        return products;
+    }
+
+    // every product in name order, copied out of the cached listing
     public List<Product> getAllProducts() {
-        List<Product> products = new ArrayList<>();
+        ProductSource catalog = getCatalog();
+        if (catalog == null) {
+            return new ArrayList<>();
+        }
+        List<Product> products = new ArrayList<>(catalog.size());
+        catalog.forEach(p -> products.add(new Product(p.getId(), p.getName(), p.getDescription(), p.getPrice(), p.getStock(), p.getCategory())));
+        return products;
+    }
+
+    /**
+     * The whole catalog in name order, served from the cached listing and loaded into it on
+     * a miss; null if it could not be loaded. The in-memory indexes are built from this.
+     */
+    public ProductSource getCatalog() {
+        ColumnarProductStore cached = productCache.getListing();
+        if (cached != null) {
+            // stock is patched into the store in place, so rows read afterwards are current
+            refreshStaleStock(productCache.getStaleStockIds());
+            return cached;
+        }
+
         String sql = "{CALL get_all_products()}";
+        long stamp = productCache.stamp();
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql);
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql);
              ResultSet rs = cstmt.executeQuery()) {
             
+            // held column-wise and read through views, so the listing is not one object per product
+            ColumnarProductStore.Builder store = ColumnarProductStore.builder();
             while (rs.next()) {
-                products.add(new Product(
-                    rs.getInt("product_id"),
-                    rs.getString("name"),
-                    rs.getString("description"),
-                    rs.getDouble("price"),
-                    rs.getInt("stock"),
-                    rs.getString("category")
-                ));
+                store.add(readProduct(rs));
             }
+            ColumnarProductStore loaded = store.build();
+            productCache.putListing(loaded, stamp);
+            return loaded;
         } catch (SQLException e) {
             System.err.println("Error getting all products: " + e.getMessage());
         }
-        return products;
+        return null;
+    }
+
+    /**
+     * Returns up to {@code pageSize} products after the cursor in {@code pageToken}, in
+     * product id order; a null token starts from the beginning of the catalog. Pages come
+     * from the cached listing while there is one (including a warm-started snapshot), with
+     * only the stock of the page's rows re-read, and from the database otherwise.
+     */
+    public Page<Product> getProductsPage(String pageToken, int pageSize) {
+        return getProductsPage("{CALL get_products_page(?, ?)}", null, pageToken, pageSize);
+    }
+
+    // same keyset paging as getProductsPage, restricted to one category
+    public Page<Product> getProductsPageByCategory(String category, String pageToken, int pageSize) {
+        return getProductsPage("{CALL get_products_page_by_category(?, ?, ?)}", category, pageToken, pageSize);
+    }
+
+    // product id -> units sold in placed orders (null on error), used to rank autocomplete suggestions
+    public Map<Integer, Long> getProductPopularity() {
+        Map<Integer, Long> popularity = new HashMap<>();
+        String sql = "{CALL get_product_popularity()}";
+        
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql);
+             ResultSet rs = cstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                popularity.put(rs.getInt("product_id"), rs.getLong("units_sold"));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting product popularity: " + e.getMessage());
+            return null;
+        }
+        return popularity;
+    }
+
+    private Page<Product> getProductsPage(String sql, String category, String pageToken, int pageSize) {
+        List<Product> products = new ArrayList<>();
+        int afterId = 0;
+        if (pageToken != null) {
+            try {
+                afterId = Integer.parseInt(pageToken);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid page token: " + pageToken);
+            }
+        }
+        
+        ColumnarProductStore listing = productCache.getListing();
+        if (listing != null) {
+            return getProductsPage(listing, category, afterId, pageSize);
+        }
+        
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
+            int index = 1;
+            if (category != null) {
+                cstmt.setString(index++, category);
+            }
+            cstmt.setInt(index++, afterId);
+            // one extra row tells us whether another page exists
+            cstmt.setInt(index, pageSize + 1);
+            ResultSet rs = cstmt.executeQuery();
+            
+            while (rs.next()) {
+                products.add(readProduct(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting product page: " + e.getMessage());
+            return new Page<>(List.of(), null);
+        }
+
+        String nextToken = null;
+        if (products.size() > pageSize) {
+            products.remove(products.size() - 1);
+            nextToken = String.valueOf(products.get(products.size() - 1).getId());
+        }
+        return new Page<>(products, nextToken);
+    }
+
+    // the same page as get_products_page(_by_category), read from the cached listing
+    private Page<Product> getProductsPage(ColumnarProductStore listing, String category, int afterId, int pageSize) {
+        int[] ids = listing.idsAfter(afterId, category, pageSize + 1);
+        int count = Math.min(ids.length, pageSize);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(listing.get(ids[i]));
+        }
+        
+        // the listing's other stale rows are left for whoever reads them
+        Map<Integer, Integer> stock = refreshStaleStock(productCache.getStaleStockIds(Arrays.copyOf(ids, count)));
+        for (Product product : products) {
+            Integer current = stock.get(product.getId());
+            if (current != null) {
+                product.setStock(current);
+            }
+        }
+        
+        String nextToken = ids.length > pageSize ? String.valueOf(ids[pageSize - 1]) : null;
+        return new Page<>(products, nextToken);
+    }
+
+    /**
+     * Returns one page of products matching {@code filter} in {@code sort} order. Pages are
+     * keyset-paginated on (sort column, product_id), and each sort has a matching index, so
+     * a short page never sorts the whole catalog.
+     */
+    public Page<Product> findProducts(ProductFilter filter, ProductSort sort, String pageToken, int pageSize) {
+        String column = sortColumn(sort);
+        boolean descending = sort == ProductSort.PRICE_HIGH_TO_LOW || sort == ProductSort.NEWEST;
+        String[] cursor = pageToken != null ? decodeSortCursor(pageToken) : null;
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT product_id, name, description, price, stock, category, created_at FROM products WHERE 1 = 1");
+        if (filter.getMinPrice() != null) {
+            sql.append(" AND price >= ?");
+        }
+        if (filter.getMaxPrice() != null) {
+            sql.append(" AND price <= ?");
+        }
+        if (filter.isInStockOnly()) {
+            sql.append(" AND stock > 0");
+        }
+        String op = descending ? "<" : ">";
+        if (cursor != null) {
+            sql.append(" AND (").append(column).append(' ').append(op).append(" ? OR (")
+               .append(column).append(" = ? AND product_id ").append(op).append(" ?))");
+        }
+        String direction = descending ? " DESC" : "";
+        sql.append(" ORDER BY ").append(column).append(direction).append(", product_id").append(direction)
+           .append(" LIMIT ?");
+
+        List<Product> products = new ArrayList<>();
+        String lastKey = null;
+        try (Connection conn = dbManager.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            if (filter.getMinPrice() != null) {
+                pstmt.setBigDecimal(index++, BigDecimal.valueOf(filter.getMinPrice()));
+            }
+            if (filter.getMaxPrice() != null) {
+                pstmt.setBigDecimal(index++, BigDecimal.valueOf(filter.getMaxPrice()));
+            }
+            if (cursor != null) {
+                bindSortKey(pstmt, index++, sort, cursor[1]);
+                bindSortKey(pstmt, index++, sort, cursor[1]);
+                pstmt.setInt(index++, Integer.parseInt(cursor[0]));
+            }
+            // one extra row tells us whether another page exists
+            pstmt.setInt(index, pageSize + 1);
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                if (products.size() == pageSize) {
+                    return new Page<>(products, encodeSortCursor(products.get(pageSize - 1).getId(), lastKey));
+                }
+                products.add(readProduct(rs));
+                lastKey = readSortKey(rs, sort);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding products: " + e.getMessage());
+            return new Page<>(List.of(), null);
+        }
+        return new Page<>(products, null);
+    }
+
+    private static String sortColumn(ProductSort sort) {
+        return switch (sort) {
+            case PRICE_LOW_TO_HIGH, PRICE_HIGH_TO_LOW -> "price";
+            case NAME -> "name";
+            case NEWEST -> "created_at";
+        };
+    }
+
+    private static String readSortKey(ResultSet rs, ProductSort sort) throws SQLException {
+        return switch (sort) {
+            case PRICE_LOW_TO_HIGH, PRICE_HIGH_TO_LOW -> rs.getBigDecimal("price").toPlainString();
+            case NAME -> rs.getString("name");
+            case NEWEST -> String.valueOf(rs.getTimestamp("created_at").getTime());
+        };
+    }
+
+    private static void bindSortKey(PreparedStatement pstmt, int index, ProductSort sort, String key) throws SQLException {
+        try {
+            switch (sort) {
+                case PRICE_LOW_TO_HIGH, PRICE_HIGH_TO_LOW -> pstmt.setBigDecimal(index, new BigDecimal(key));
+                case NAME -> pstmt.setString(index, key);
+                case NEWEST -> pstmt.setTimestamp(index, new Timestamp(Long.parseLong(key)));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid page token for sort " + sort);
+        }
+    }
+
+    // "<id>:<sort key>"; the key goes last because product names may contain ':'
+    private static String encodeSortCursor(int productId, String sortKey) {
+        String raw = productId + ":" + sortKey;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeSortCursor(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 2);
+            if (parts.length == 2) {
+                Integer.parseInt(parts[0]);
+                return parts;
+            }
+        } catch (IllegalArgumentException e) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Invalid page token: " + token);
+    }
+
+    /**
+     * Streams the whole catalog in product id order from an open server cursor, so memory
+     * use does not grow with the catalog. The stream holds a pooled connection until it is
+     * closed, so always use it in try-with-resources and do not run other queries on the
+     * same thread while it is open.
+     */
+    /**
+     * The whole catalog in id order, read through a database cursor; close the stream to
+     * release the connection. Throws IllegalStateException if the query cannot be run or a
+     * row cannot be read.
+     */
+    public Stream<Product> streamProducts() {
+        return streamProducts("product_id");
+    }
+
+    private Stream<Product> streamProducts(String orderBy) {
+        String sql = "SELECT product_id, name, description, price, stock, category FROM products ORDER BY " + orderBy;
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        try {
+            conn = dbManager.getConnection();
+            pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            pstmt.setFetchSize(STREAM_FETCH_SIZE);
+            ResultSet rs = pstmt.executeQuery();
+            Connection cursorConn = conn;
+            PreparedStatement cursorStmt = pstmt;
+
+            Iterator<Product> rows = new Iterator<>() {
+                private Product next;
+                private boolean done;
+
+                @Override
+                public boolean hasNext() {
+                    if (next == null && !done) {
+                        try {
+                            if (rs.next()) {
+                                next = readProduct(rs);
+                            } else {
+                                done = true;
+                            }
+                        } catch (SQLException e) {
+                            throw new IllegalStateException("Error streaming products", e);
+                        }
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public Product next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Product product = next;
+                    next = null;
+                    return product;
+                }
+            };
+
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try (cursorConn; cursorStmt; rs) {
+                        // closing the result set drains the remaining rows off the wire
+                    } catch (SQLException e) {
+                        System.err.println("Error closing product stream: " + e.getMessage());
+                    }
+                });
+        } catch (SQLException e) {
+            // release whatever was opened before the failure
+            closeQuietly(pstmt);
+            closeQuietly(conn);
+            throw new IllegalStateException("Error streaming products: " + e.getMessage(), e);
+        }
+    }
+
+    // the id list argument of get_products_by_ids and get_stock_by_ids
+    private static String toJsonArray(List<Integer> ids) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < ids.size(); i++) {
+            if (i > 0) {
+                json.append(", ");
+            }
+            json.append(ids.get(i));
+        }
+        return json.append(']').toString();
+    }
+
+    // for cleanup after a failure that is already being reported
+    private static void closeQuietly(AutoCloseable resource) {
+        if (resource != null) {
+            try {
+                resource.close();
+            } catch (Exception ignored) {
+                // the original failure is the one worth reporting
+            }
+        }
     }
 
     public List<Product> searchProducts(String searchTerm) {
         List<Product> products = new ArrayList<>();
         String sql = "{CALL search_products(?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setString(1, searchTerm);
             
             ResultSet rs = cstmt.executeQuery();
@@ -142,15 +639,259 @@ public class ProductDB {
     public boolean updateStock(int productId, int newStock) {
         String sql = "{CALL update_stock(?, ?)}";
         
-        try (CallableStatement cstmt = dbManager.getConnection().prepareCall(sql)) {
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
             cstmt.setInt(1, productId);
             cstmt.setInt(2, newStock);
             
             cstmt.execute();
+            productCache.stockChanged(productId);
             return true;
         } catch (SQLException e) {
             System.err.println("Error updating product stock: " + e.getMessage());
         }
         return false;
     }
+
+    // sets absolute stock levels (product id -> stock) in one transaction
+    public BulkUpdateResult setStock(Map<Integer, Integer> stockById) {
+        return updateStock("UPDATE products SET stock = ? WHERE product_id = ?", stockById, false);
+    }
+
+    /**
+     * Applies stock deltas (product id -> delta) in one transaction. A delta that would take
+     * stock below zero is skipped; the rest still apply.
+     */
+    public BulkUpdateResult adjustStock(Map<Integer, Integer> deltaById) {
+        return updateStock("UPDATE products SET stock = stock + ? WHERE product_id = ? AND stock + ? >= 0", deltaById, true);
+    }
+
+    private BulkUpdateResult updateStock(String sql, Map<Integer, Integer> valueById, boolean guardNegative) {
+        List<Integer> batchIds = new ArrayList<>(BULK_BATCH_SIZE);
+        List<Integer> updatedIds = new ArrayList<>(valueById.size());
+        List<Integer> skippedIds = new ArrayList<>();
+        
+        try (Connection conn = dbManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                for (Map.Entry<Integer, Integer> e : valueById.entrySet()) {
+                    pstmt.setInt(1, e.getValue());
+                    pstmt.setInt(2, e.getKey());
+                    if (guardNegative) {
+                        pstmt.setInt(3, e.getValue());
+                    }
+                    pstmt.addBatch();
+                    batchIds.add(e.getKey());
+                    // flush regularly so a 100k-row sync never buffers every statement at once
+                    if (batchIds.size() == BULK_BATCH_SIZE) {
+                        sortBatchResults(pstmt.executeBatch(), batchIds, updatedIds, skippedIds);
+                    }
+                }
+                if (!batchIds.isEmpty()) {
+                    sortBatchResults(pstmt.executeBatch(), batchIds, updatedIds, skippedIds);
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error updating stock: " + e.getMessage());
+            return null;
+        }
+        
+        for (int productId : updatedIds) {
+            productCache.stockChanged(productId);
+        }
+        return new BulkUpdateResult(updatedIds.size(), skippedIds);
+    }
+
+    private static void sortBatchResults(int[] counts, List<Integer> batchIds, List<Integer> updatedIds, List<Integer> skippedIds) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                skippedIds.add(batchIds.get(i));
+            } else {
+                updatedIds.add(batchIds.get(i));
+            }
+        }
+        batchIds.clear();
+    }
+
+    // scales every price in the category by (100 + percent) / 100; returns the rows changed, or -1 on error
+    public int adjustCategoryPrices(String category, double percent) {
+        String sql = "{CALL adjust_category_prices(?, ?, ?)}";
+        
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
+            cstmt.setString(1, category);
+            cstmt.setBigDecimal(2, BigDecimal.valueOf(percent));
+            cstmt.registerOutParameter(3, Types.INTEGER);
+            
+            cstmt.execute();
+            productCache.invalidateAll();
+            return cstmt.getInt(3);
+        } catch (SQLException e) {
+            System.err.println("Error adjusting category prices: " + e.getMessage());
+        }
+        return -1;
+    }
+
+    /**
+     * Writes the catalog to {@code file} in name order, the order of {@link #getAllProducts}.
+     * The watermark is read before the rows, so any change the rows might have missed is
+     * newer than it and is picked up when the snapshot is reconciled.
+     */
+    public boolean saveCatalogSnapshot(Path file) {
+        Timestamp watermark = getCatalogWatermark();
+        if (watermark == null) {
+            return false;
+        }
+        
+        try (Stream<Product> products = streamProducts("name")) {
+            CatalogSnapshot.write(file, watermark.getTime(), products.iterator());
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            System.err.println("Error saving catalog snapshot: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Serves the catalog listing from the snapshot in {@code file} straight away, then brings
+     * it up to date from the database: rows changed since the snapshot's watermark are
+     * re-read and deleted products are dropped. Returns false if there is no usable snapshot.
+     */
+    public boolean warmStartFromSnapshot(Path file) {
+        long stamp = productCache.stamp();
+        CatalogSnapshot snapshot;
+        try {
+            snapshot = CatalogSnapshot.read(file);
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            System.err.println("Ignoring catalog snapshot " + file + ": " + e.getMessage());
+            return false;
+        }
+        productCache.putListing(snapshot.getStore(), stamp);
+        
+        stamp = productCache.stamp();
+        int[] liveIds = getProductIds();
+        // the margin covers transactions that were still open, with older timestamps, when the watermark was read
+        List<Product> changed = getProductsChangedSince(new Timestamp(snapshot.getWatermark() - SNAPSHOT_RECONCILE_MARGIN_MS));
+        if (liveIds == null || changed == null) {
+            // leave the snapshot in place rather than serving nothing; the next invalidation reloads it
+            return true;
+        }
+        
+        ColumnarProductStore current = snapshot.getStore().merge(changed, id -> Arrays.binarySearch(liveIds, id) >= 0);
+        productCache.putListing(current, stamp);
+        if (!changed.isEmpty() || current.size() != snapshot.getStore().size()) {
+            // a search made before reconciling may have indexed the stale snapshot
+            searchIndex.reset();
+            categoryFacets.reset();
+            autocomplete.reset();
+        }
+        return true;
+    }
+
+    /**
+     * Re-reads the stock of listing rows whose stock changed since the listing was loaded,
+     * one call per chunk, and patches them into the cached listing. Returns the stock
+     * levels read, which may be only some of them if a query failed.
+     */
+    private Map<Integer, Integer> refreshStaleStock(List<Integer> productIds) {
+        Map<Integer, Integer> refreshed = new HashMap<>();
+        for (int from = 0; from < productIds.size(); from += BULK_BATCH_SIZE) {
+            List<Integer> chunk = productIds.subList(from, Math.min(from + BULK_BATCH_SIZE, productIds.size()));
+            String sql = "{CALL get_stock_by_ids(?)}";
+            long stamp = productCache.stamp();
+            Map<Integer, Integer> stockById = new HashMap<>();
+            
+            try (Connection conn = dbManager.getConnection();
+                 CallableStatement cstmt = conn.prepareCall(sql)) {
+                cstmt.setString(1, toJsonArray(chunk));
+                ResultSet rs = cstmt.executeQuery();
+                
+                while (rs.next()) {
+                    stockById.put(rs.getInt("product_id"), rs.getInt("stock"));
+                }
+            } catch (SQLException e) {
+                // the rows stay stale and are retried on the next read
+                System.err.println("Error refreshing product stock: " + e.getMessage());
+                return refreshed;
+            }
+            productCache.stockRefreshed(stockById, stamp);
+            refreshed.putAll(stockById);
+        }
+        return refreshed;
+    }
+
+    private Timestamp getCatalogWatermark() {
+        String sql = "{CALL get_catalog_watermark()}";
+        
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql);
+             ResultSet rs = cstmt.executeQuery()) {
+            
+            Timestamp watermark = rs.next() ? rs.getTimestamp("watermark") : null;
+            // an empty catalog has no watermark, so reconcile from the beginning
+            return watermark != null ? watermark : new Timestamp(0);
+        } catch (SQLException e) {
+            System.err.println("Error getting catalog watermark: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private List<Product> getProductsChangedSince(Timestamp since) {
+        List<Product> products = new ArrayList<>();
+        String sql = "{CALL get_products_changed_since(?)}";
+        
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql)) {
+            cstmt.setTimestamp(1, since);
+            ResultSet rs = cstmt.executeQuery();
+            
+            while (rs.next()) {
+                products.add(readProduct(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting changed products: " + e.getMessage());
+            return null;
+        }
+        return products;
+    }
+
+    // sorted ascending
+    private int[] getProductIds() {
+        int[] ids = new int[1024];
+        int count = 0;
+        String sql = "{CALL get_product_ids()}";
+        
+        try (Connection conn = dbManager.getConnection();
+             CallableStatement cstmt = conn.prepareCall(sql);
+             ResultSet rs = cstmt.executeQuery()) {
+            
+            while (rs.next()) {
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, count * 2);
+                }
+                ids[count++] = rs.getInt("product_id");
+            }
+        } catch (SQLException e) {
+            System.err.println("Error getting product ids: " + e.getMessage());
+            return null;
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    private static Product readProduct(ResultSet rs) throws SQLException {
+        return new Product(
+            rs.getInt("product_id"),
+            rs.getString("name"),
+            rs.getString("description"),
+            rs.getDouble("price"),
+            rs.getInt("stock"),
+            rs.getString("category")
+        );
+    }
 }
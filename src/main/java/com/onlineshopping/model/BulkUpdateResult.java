@@ -0,0 +1,25 @@
+package com.onlineshopping.model;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk catalog update; {@code skippedIds} are the products that were left
+ * unchanged because they do not exist or the change was not allowed.
+ */
+public class BulkUpdateResult {
+    private final int updated;
+    private final List<Integer> skippedIds;
+
+    public BulkUpdateResult(int updated, List<Integer> skippedIds) {
+        this.updated = updated;
+        this.skippedIds = skippedIds;
+    }
+
+    public int getUpdated() { return updated; }
+    public List<Integer> getSkippedIds() { return skippedIds; }
+
+    @Override
+    public String toString() {
+        return String.format("BulkUpdateResult{updated=%d, skipped=%d}", updated, skippedIds.size());
+    }
+}
@@ -0,0 +1,33 @@
+package com.onlineshopping.model;
+
+// outcome of a single add-to-cart call, including the cart as it looks afterwards
+public class CartUpdate {
+    public enum Result {
+        ADDED, PRODUCT_NOT_FOUND, INSUFFICIENT_STOCK
+    }
+
+    private final Result result;
+    private final int availableStock;
+    private final Order cart;
+
+    public CartUpdate(Result result, int availableStock, Order cart) {
+        this.result = result;
+        this.availableStock = availableStock;
+        this.cart = cart;
+    }
+
+    public Result getResult() { return result; }
+    public int getAvailableStock() { return availableStock; }
+
+    // the updated active order with its items; null unless the product was added
+    public Order getCart() { return cart; }
+
+    public boolean isAdded() {
+        return result == Result.ADDED;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CartUpdate{result=%s, availableStock=%d, cart=%s}", result, availableStock, cart);
+    }
+}
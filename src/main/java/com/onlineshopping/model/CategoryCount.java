@@ -0,0 +1,19 @@
+package com.onlineshopping.model;
+
+public class CategoryCount {
+    private final String category;
+    private final int productCount;
+
+    public CategoryCount(String category, int productCount) {
+        this.category = category;
+        this.productCount = productCount;
+    }
+
+    public String getCategory() { return category; }
+    public int getProductCount() { return productCount; }
+
+    @Override
+    public String toString() {
+        return String.format("CategoryCount{category='%s', productCount=%d}", category, productCount);
+    }
+}
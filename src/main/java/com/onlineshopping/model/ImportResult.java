@@ -0,0 +1,51 @@
+package com.onlineshopping.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Running tally of a catalog import. Only the first {@code maxErrors} row errors are kept;
+ * the rest are counted.
+ */
+public class ImportResult {
+    private final int maxErrors;
+    private final long startedAt = System.nanoTime();
+    private final List<String> errors = new ArrayList<>();
+    private long rowsImported;
+    private long rowsFailed;
+
+    public ImportResult(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    public void rowsImported(int count) {
+        rowsImported += count;
+    }
+
+    public void rowFailed(long lineNumber, String reason) {
+        rowsFailed++;
+        if (errors.size() < maxErrors) {
+            errors.add("line " + lineNumber + ": " + reason);
+        }
+    }
+
+    public long getRowsImported() { return rowsImported; }
+    public long getRowsFailed() { return rowsFailed; }
+    public List<String> getErrors() { return Collections.unmodifiableList(errors); }
+
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - startedAt) / 1e9;
+    }
+
+    public double getRowsPerSecond() {
+        double elapsed = getElapsedSeconds();
+        return elapsed > 0 ? rowsImported / elapsed : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ImportResult{imported=%d, failed=%d, rowsPerSecond=%.0f}",
+                rowsImported, rowsFailed, getRowsPerSecond());
+    }
+}
@@ -3,6 +3,7 @@ package com.onlineshopping.model;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Iterator;
 
 public class Order {
     public enum OrderStatus {
@@ -55,20 +56,27 @@ public class Order {
     public List<OrderItem> getItems() { return items; }
     public void setItems(List<OrderItem> items) { this.items = items; }
 
+    // the running total is adjusted by each line's subtotal instead of re-summing every item
     public void addItem(OrderItem item) {
         this.items.add(item);
-        calculateTotal();
+        this.totalAmount = roundToCents(totalAmount + item.getSubtotal());
     }
 
     public void removeItem(int productId) {
-        this.items.removeIf(item -> item.getProductId() == productId);
-        calculateTotal();
+        double removed = 0.0;
+        Iterator<OrderItem> it = items.iterator();
+        while (it.hasNext()) {
+            OrderItem item = it.next();
+            if (item.getProductId() == productId) {
+                removed += item.getSubtotal();
+                it.remove();
+            }
+        }
+        this.totalAmount = roundToCents(totalAmount - removed);
     }
 
-    private void calculateTotal() {
-        this.totalAmount = items.stream()
-                .mapToDouble(item -> item.getPrice() * item.getQuantity())
-                .sum();
+    private static double roundToCents(double amount) {
+        return Math.round(amount * 100.0) / 100.0;
     }
 
     @Override
@@ -0,0 +1,32 @@
+package com.onlineshopping.model;
+
+import java.time.LocalDateTime;
+
+// read-only header of an order for listings; the items themselves are never loaded
+public class OrderSummary {
+    private final int id;
+    private final LocalDateTime orderDate;
+    private final Order.OrderStatus status;
+    private final double totalAmount;
+    private final int itemCount;
+
+    public OrderSummary(int id, LocalDateTime orderDate, Order.OrderStatus status, double totalAmount, int itemCount) {
+        this.id = id;
+        this.orderDate = orderDate;
+        this.status = status;
+        this.totalAmount = totalAmount;
+        this.itemCount = itemCount;
+    }
+
+    public int getId() { return id; }
+    public LocalDateTime getOrderDate() { return orderDate; }
+    public Order.OrderStatus getStatus() { return status; }
+    public double getTotalAmount() { return totalAmount; }
+    public int getItemCount() { return itemCount; }
+
+    @Override
+    public String toString() {
+        return String.format("OrderSummary{id=%d, orderDate=%s, status=%s, totalAmount=%.2f, itemCount=%d}",
+                id, orderDate, status, totalAmount, itemCount);
+    }
+}
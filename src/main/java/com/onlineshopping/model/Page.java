@@ -0,0 +1,29 @@
+package com.onlineshopping.model;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing. {@code nextToken} is an opaque cursor for the
+ * following page and is null on the last page.
+ */
+public class Page<T> {
+    private final List<T> items;
+    private final String nextToken;
+
+    public Page(List<T> items, String nextToken) {
+        this.items = items;
+        this.nextToken = nextToken;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextToken() { return nextToken; }
+
+    public boolean hasNext() {
+        return nextToken != null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Page{items=%d, hasNext=%b}", items.size(), hasNext());
+    }
+}
@@ -0,0 +1,6 @@
+package com.onlineshopping.model;
+
+// outcome of placing the active order
+public enum PlaceOrderResult {
+    PLACED, EMPTY_CART, FAILED
+}
@@ -1,6 +1,6 @@
 package com.onlineshopping.model;
 
-public class Product {
+public class Product implements ProductInfo {
     private int id;
     private String name;
     private String description;
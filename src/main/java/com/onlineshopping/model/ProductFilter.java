@@ -0,0 +1,29 @@
+package com.onlineshopping.model;
+
+/**
+ * Optional constraints for a product listing; a null bound is open-ended.
+ */
+public class ProductFilter {
+    private final Double minPrice;
+    private final Double maxPrice;
+    private final boolean inStockOnly;
+
+    public ProductFilter(Double minPrice, Double maxPrice, boolean inStockOnly) {
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.inStockOnly = inStockOnly;
+    }
+
+    public static ProductFilter none() {
+        return new ProductFilter(null, null, false);
+    }
+
+    public Double getMinPrice() { return minPrice; }
+    public Double getMaxPrice() { return maxPrice; }
+    public boolean isInStockOnly() { return inStockOnly; }
+
+    @Override
+    public String toString() {
+        return String.format("ProductFilter{minPrice=%s, maxPrice=%s, inStockOnly=%b}", minPrice, maxPrice, inStockOnly);
+    }
+}
@@ -0,0 +1,16 @@
+package com.onlineshopping.model;
+
+// read access to a product, implemented by Product and by the catalog's columnar row views
+public interface ProductInfo {
+    int getId();
+
+    String getName();
+
+    String getDescription();
+
+    double getPrice();
+
+    int getStock();
+
+    String getCategory();
+}
@@ -0,0 +1,16 @@
+package com.onlineshopping.model;
+
+public enum ProductSort {
+    PRICE_LOW_TO_HIGH("Price: low to high"),
+    PRICE_HIGH_TO_LOW("Price: high to low"),
+    NAME("Name"),
+    NEWEST("Newest first");
+
+    private final String label;
+
+    ProductSort(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() { return label; }
+}
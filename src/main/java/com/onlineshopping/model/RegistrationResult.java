@@ -0,0 +1,6 @@
+package com.onlineshopping.model;
+
+// outcome of registering a new customer
+public enum RegistrationResult {
+    REGISTERED, USERNAME_TAKEN, FAILED
+}
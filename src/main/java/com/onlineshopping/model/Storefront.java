@@ -0,0 +1,35 @@
+package com.onlineshopping.model;
+
+import java.util.List;
+
+/**
+ * Everything the landing screen shows at once: the first product page, the category list,
+ * the shopper's open cart ({@code cart} is null when there is none) and the current state
+ * of the products in it.
+ */
+public class Storefront {
+    private final Page<Product> products;
+    private final List<CategoryCount> categories;
+    private final Order cart;
+    private final List<Product> cartProducts;
+
+    public Storefront(Page<Product> products, List<CategoryCount> categories, Order cart, List<Product> cartProducts) {
+        this.products = products;
+        this.categories = categories;
+        this.cart = cart;
+        this.cartProducts = cartProducts;
+    }
+
+    public Page<Product> getProducts() { return products; }
+    public List<CategoryCount> getCategories() { return categories; }
+    public Order getCart() { return cart; }
+
+    // the cart's products as they are now, so the screen can flag price or stock changes
+    public List<Product> getCartProducts() { return cartProducts; }
+
+    @Override
+    public String toString() {
+        return String.format("Storefront{products=%d, categories=%d, cartItems=%d}",
+                products.getItems().size(), categories.size(), cart != null ? cart.getItems().size() : 0);
+    }
+}
@@ -0,0 +1,542 @@
+package com.onlineshopping.server;
+
+import com.onlineshopping.model.*;
+import com.onlineshopping.service.AsyncShoppingService;
+import com.onlineshopping.service.Session;
+import com.onlineshopping.service.ShoppingService;
+import com.onlineshopping.util.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP/JSON front end for {@link ShoppingService}, built on the JDK's own HTTP server.
+ *
+ * Clients log in with POST /api/login and send the returned token as
+ * "Authorization: Bearer &lt;token&gt;" on customer and admin calls. Admin calls also need an
+ * "X-Admin-Token" header matching -Dserver.adminToken, and are refused while no admin token
+ * is configured. The server listens on loopback unless -Dserver.host says otherwise. Each
+ * request runs on its own virtual thread where the JVM has them, and on a cached thread
+ * pool otherwise; GET /api/storefront fans its reads out through {@link AsyncShoppingService}.
+ */
+public class ApiServer {
+    // Server settings - override with -Dserver.<name>=<value>
+    public static final int DEFAULT_PORT = Integer.getInteger("server.port", 8080);
+    private static final String HOST = System.getProperty("server.host", "127.0.0.1");
+    private static final String ADMIN_TOKEN = System.getProperty("server.adminToken", "");
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+
+    private final ShoppingService shoppingService;
+    private final AsyncShoppingService asyncService;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public ApiServer(ShoppingService shoppingService, int port) throws IOException {
+        this.shoppingService = shoppingService;
+        this.asyncService = new AsyncShoppingService(shoppingService);
+        this.executor = newRequestExecutor();
+        this.server = HttpServer.create(new InetSocketAddress(HOST, port), 0);
+        server.createContext("/api/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        System.out.println("Online Shopping API listening on " + HOST + ":" + server.getAddress().getPort());
+    }
+
+    // stops accepting requests and gives in-flight ones up to delaySeconds to finish
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        asyncService.close();
+    }
+
+    /**
+     * One virtual thread per request on JDK 21+. Looked up reflectively so the code still
+     * compiles and runs on older JDKs, where it falls back to a cached platform thread pool.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            System.err.println("Virtual threads unavailable on this JVM, using a cached thread pool");
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = 200;
+        Object body;
+        try {
+            body = route(new Request(exchange));
+        } catch (ApiException e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Error handling " + exchange.getRequestMethod() + " " + exchange.getRequestURI() + ": " + e);
+            status = 500;
+            body = error("Internal server error");
+        }
+
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private Object route(Request req) throws IOException {
+        List<String> path = req.path;
+        String resource = path.isEmpty() ? "" : path.get(0);
+
+        switch (resource) {
+            case "register" -> {
+                req.requireMethod("POST");
+                Map<String, Object> body = req.body();
+                RegistrationResult result = shoppingService.registerCustomer(string(body, "username"), string(body, "password"));
+                return Map.of("result", result.name(), "registered", result == RegistrationResult.REGISTERED);
+            }
+            case "login" -> {
+                req.requireMethod("POST");
+                Map<String, Object> body = req.body();
+                Session session = shoppingService.login(string(body, "username"), string(body, "password"));
+                if (session == null) {
+                    throw new ApiException(401, "Invalid username or password");
+                }
+                return sessionJson(session);
+            }
+            case "logout" -> {
+                req.requireMethod("POST");
+                shoppingService.logout(req.session());
+                return Map.of("loggedOut", true);
+            }
+            case "password" -> {
+                req.requireMethod("PUT");
+                Session session = req.session();
+                if (!shoppingService.updateCustomerPassword(session, string(req.body(), "password"))) {
+                    throw new ApiException(500, "Failed to update password");
+                }
+                // the old token was revoked along with every other session of this customer
+                return sessionJson(session);
+            }
+            case "products" -> {
+                req.requireMethod("GET");
+                if (path.size() == 2) {
+                    Product product = shoppingService.getProductById(intSegment(path.get(1)));
+                    if (product == null) {
+                        throw new ApiException(404, "Product not found");
+                    }
+                    return productJson(product);
+                }
+                return productPage(req);
+            }
+            case "categories" -> {
+                req.requireMethod("GET");
+                return categoriesJson(shoppingService.getCategories());
+            }
+            case "storefront" -> {
+                req.requireMethod("GET");
+                return storefrontJson(await(asyncService.loadStorefront(req.session(), req.pageSize())));
+            }
+            case "search" -> {
+                req.requireMethod("GET");
+                List<Object> products = new ArrayList<>();
+                for (Product product : shoppingService.searchProducts(req.requireQuery("q"))) {
+                    products.add(productJson(product));
+                }
+                return products;
+            }
+            case "suggest" -> {
+                req.requireMethod("GET");
+                return shoppingService.suggestProducts(req.requireQuery("q"));
+            }
+            case "cart" -> {
+                return cart(req);
+            }
+            case "orders" -> {
+                req.requireMethod("GET");
+                Session session = req.session();
+                if (path.size() == 2) {
+                    Order order = shoppingService.getCustomerOrder(session, intSegment(path.get(1)));
+                    if (order == null) {
+                        throw new ApiException(404, "Order not found");
+                    }
+                    return orderJson(order);
+                }
+                Page<OrderSummary> page = shoppingService.getCustomerOrderSummaryPage(session, req.query.get("pageToken"), req.pageSize());
+                List<Object> orders = new ArrayList<>();
+                for (OrderSummary summary : page.getItems()) {
+                    orders.add(summaryJson(summary));
+                }
+                return pageJson(orders, page);
+            }
+            case "admin" -> {
+                return admin(req);
+            }
+            default -> throw new ApiException(404, "No such endpoint: " + req.exchange.getRequestURI().getPath());
+        }
+    }
+
+    private Object productPage(Request req) {
+        String token = req.query.get("pageToken");
+        int pageSize = req.pageSize();
+        String category = req.query.get("category");
+        String sort = req.query.get("sort");
+        Page<Product> page;
+        if (category != null) {
+            page = shoppingService.getProductsPageByCategory(category, token, pageSize);
+        } else if (sort != null || req.query.containsKey("minPrice") || req.query.containsKey("maxPrice") || req.query.containsKey("inStock")) {
+            ProductFilter filter = new ProductFilter(
+                    req.doubleQuery("minPrice"), req.doubleQuery("maxPrice"), Boolean.parseBoolean(req.query.get("inStock")));
+            ProductSort order = sort != null ? ProductSort.valueOf(sort.toUpperCase()) : ProductSort.NAME;
+            page = shoppingService.findProducts(filter, order, token, pageSize);
+        } else {
+            page = shoppingService.getProductsPage(token, pageSize);
+        }
+
+        List<Object> products = new ArrayList<>();
+        for (Product product : page.getItems()) {
+            products.add(productJson(product));
+        }
+        return pageJson(products, page);
+    }
+
+    private Object cart(Request req) throws IOException {
+        Session session = req.session();
+        List<String> path = req.path;
+
+        if (path.size() == 1) {
+            req.requireMethod("GET");
+            Order cart = shoppingService.getCurrentOrder(session);
+            return cart != null ? orderJson(cart) : null;
+        }
+        switch (path.get(1)) {
+            case "items" -> {
+                if (path.size() == 3) {
+                    req.requireMethod("DELETE");
+                    return Map.of("removed", shoppingService.removeProductFromOrder(session, intSegment(path.get(2))));
+                }
+                req.requireMethod("POST");
+                Map<String, Object> body = req.body();
+                CartUpdate update = shoppingService.addProductToCart(session, integer(body, "productId"), integer(body, "quantity"));
+                if (update == null) {
+                    throw new ApiException(400, "Quantity must be positive");
+                }
+                Map<String, Object> json = new LinkedHashMap<>();
+                json.put("result", update.getResult().name());
+                json.put("added", update.isAdded());
+                json.put("availableStock", update.getAvailableStock());
+                json.put("cart", update.getCart() != null ? orderJson(update.getCart()) : null);
+                return json;
+            }
+            case "place" -> {
+                req.requireMethod("POST");
+                PlaceOrderResult result = shoppingService.placeOrder(session);
+                return Map.of("result", result.name(), "placed", result == PlaceOrderResult.PLACED);
+            }
+            case "cancel" -> {
+                req.requireMethod("POST");
+                return Map.of("cancelled", shoppingService.cancelOrder(session));
+            }
+            default -> throw new ApiException(404, "No such endpoint: " + req.exchange.getRequestURI().getPath());
+        }
+    }
+
+    private Object admin(Request req) throws IOException {
+        req.session();
+        // a logged-in shopper is not an admin, so without a configured token nobody is
+        if (ADMIN_TOKEN.isEmpty()) {
+            throw new ApiException(403, "Admin API is disabled; set -Dserver.adminToken to enable it");
+        }
+        String supplied = req.exchange.getRequestHeaders().getFirst("X-Admin-Token");
+        if (supplied == null || !MessageDigest.isEqual(
+                supplied.getBytes(StandardCharsets.UTF_8), ADMIN_TOKEN.getBytes(StandardCharsets.UTF_8))) {
+            throw new ApiException(403, "Admin token required");
+        }
+        List<String> path = req.path;
+        if (path.size() < 2 || !path.get(1).equals("products") || path.size() > 3) {
+            throw new ApiException(404, "No such endpoint: " + req.exchange.getRequestURI().getPath());
+        }
+
+        if (path.size() == 2) {
+            req.requireMethod("POST");
+            Map<String, Object> body = req.body();
+            boolean added = shoppingService.addProduct(string(body, "name"), optionalString(body, "description"),
+                    number(body, "price"), integer(body, "stock"), optionalString(body, "category"));
+            return Map.of("added", added);
+        }
+
+        int productId = intSegment(path.get(2));
+        if (req.method.equals("DELETE")) {
+            return Map.of("removed", shoppingService.removeProduct(productId));
+        }
+        req.requireMethod("PUT");
+        Map<String, Object> body = req.body();
+        boolean updated = shoppingService.updateProduct(productId, string(body, "name"), optionalString(body, "description"),
+                number(body, "price"), integer(body, "stock"), optionalString(body, "category"));
+        if (!updated) {
+            throw new ApiException(404, "Product not found");
+        }
+        return Map.of("updated", true);
+    }
+
+    // blocks this request's thread only; the reads behind the future run on the service executor
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static Map<String, Object> storefrontJson(Storefront storefront) {
+        List<Object> products = new ArrayList<>();
+        for (Product product : storefront.getProducts().getItems()) {
+            products.add(productJson(product));
+        }
+        List<Object> cartProducts = new ArrayList<>();
+        for (Product product : storefront.getCartProducts()) {
+            cartProducts.add(productJson(product));
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("products", pageJson(products, storefront.getProducts()));
+        json.put("categories", categoriesJson(storefront.getCategories()));
+        json.put("cart", storefront.getCart() != null ? orderJson(storefront.getCart()) : null);
+        json.put("cartProducts", cartProducts);
+        return json;
+    }
+
+    private static List<Object> categoriesJson(List<CategoryCount> categories) {
+        List<Object> json = new ArrayList<>();
+        for (CategoryCount category : categories) {
+            json.add(Map.of("category", category.getCategory(), "productCount", category.getProductCount()));
+        }
+        return json;
+    }
+
+    private static Map<String, Object> sessionJson(Session session) {
+        Customer customer = session.getCustomer();
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("token", session.getToken());
+        json.put("customerId", customer.getId());
+        json.put("username", customer.getUsername());
+        return json;
+    }
+
+    private static Map<String, Object> productJson(Product product) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", product.getId());
+        json.put("name", product.getName());
+        json.put("description", product.getDescription());
+        json.put("price", product.getPrice());
+        json.put("stock", product.getStock());
+        json.put("category", product.getCategory());
+        return json;
+    }
+
+    private static Map<String, Object> orderJson(Order order) {
+        List<Object> items = new ArrayList<>();
+        for (OrderItem item : order.getItems()) {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("productId", item.getProductId());
+            json.put("productName", item.getProductName());
+            json.put("price", item.getPrice());
+            json.put("quantity", item.getQuantity());
+            json.put("subtotal", item.getSubtotal());
+            items.add(json);
+        }
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", order.getId());
+        json.put("orderDate", order.getOrderDate());
+        json.put("status", order.getStatus());
+        json.put("totalAmount", order.getTotalAmount());
+        json.put("items", items);
+        return json;
+    }
+
+    private static Map<String, Object> summaryJson(OrderSummary summary) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", summary.getId());
+        json.put("orderDate", summary.getOrderDate());
+        json.put("status", summary.getStatus());
+        json.put("totalAmount", summary.getTotalAmount());
+        json.put("itemCount", summary.getItemCount());
+        return json;
+    }
+
+    private static Map<String, Object> pageJson(List<Object> items, Page<?> page) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("items", items);
+        json.put("nextToken", page.getNextToken());
+        return json;
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> json = new HashMap<>();
+        json.put("error", message);
+        return json;
+    }
+
+    private static String string(Map<String, Object> body, String field) {
+        String value = optionalString(body, field);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing field: " + field);
+        }
+        return value;
+    }
+
+    private static String optionalString(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException("Field must be a string: " + field);
+        }
+        return (String) value;
+    }
+
+    private static double number(Map<String, Object> body, String field) {
+        Object value = body.get(field);
+        if (!(value instanceof Double)) {
+            throw new IllegalArgumentException("Field must be a number: " + field);
+        }
+        return (Double) value;
+    }
+
+    private static int integer(Map<String, Object> body, String field) {
+        double value = number(body, field);
+        if (value != Math.rint(value) || Math.abs(value) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Field must be a whole number: " + field);
+        }
+        return (int) value;
+    }
+
+    private static int intSegment(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new ApiException(404, "Not found: " + segment);
+        }
+    }
+
+    private final class Request {
+        final HttpExchange exchange;
+        final String method;
+        final List<String> path = new ArrayList<>();
+        final Map<String, String> query = new HashMap<>();
+
+        Request(HttpExchange exchange) {
+            this.exchange = exchange;
+            this.method = exchange.getRequestMethod();
+            // the context is /api/, so drop the first two segments ("" and "api")
+            String[] segments = exchange.getRequestURI().getRawPath().split("/");
+            for (int i = 2; i < segments.length; i++) {
+                if (!segments[i].isEmpty()) {
+                    path.add(URLDecoder.decode(segments[i], StandardCharsets.UTF_8));
+                }
+            }
+            String rawQuery = exchange.getRequestURI().getRawQuery();
+            if (rawQuery != null) {
+                for (String pair : rawQuery.split("&")) {
+                    int eq = pair.indexOf('=');
+                    String key = eq < 0 ? pair : pair.substring(0, eq);
+                    String value = eq < 0 ? "" : pair.substring(eq + 1);
+                    query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        void requireMethod(String expected) {
+            if (!method.equals(expected)) {
+                throw new ApiException(405, "Use " + expected + " for this endpoint");
+            }
+        }
+
+        Session session() {
+            String header = exchange.getRequestHeaders().getFirst("Authorization");
+            if (header == null || !header.startsWith("Bearer ")) {
+                throw new ApiException(401, "Missing bearer token");
+            }
+            Session session = shoppingService.resumeSession(header.substring("Bearer ".length()).trim());
+            if (session == null) {
+                throw new ApiException(401, "Session expired or invalid");
+            }
+            return session;
+        }
+
+        Map<String, Object> body() throws IOException {
+            byte[] bytes;
+            try (InputStream in = exchange.getRequestBody()) {
+                bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            }
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body too large");
+            }
+            Object parsed = Json.parse(new String(bytes, StandardCharsets.UTF_8));
+            if (!(parsed instanceof Map)) {
+                throw new IllegalArgumentException("Request body must be a JSON object");
+            }
+            @SuppressWarnings("unchecked")
+            Map<String, Object> body = (Map<String, Object>) parsed;
+            return body;
+        }
+
+        String requireQuery(String name) {
+            String value = query.get(name);
+            if (value == null || value.isBlank()) {
+                throw new IllegalArgumentException("Missing query parameter: " + name);
+            }
+            return value;
+        }
+
+        Double doubleQuery(String name) {
+            String value = query.get(name);
+            return value == null || value.isBlank() ? null : Double.valueOf(value);
+        }
+
+        int pageSize() {
+            String value = query.get("pageSize");
+            return value == null ? DEFAULT_PAGE_SIZE : Integer.parseInt(value);
+        }
+    }
+
+    private static final class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
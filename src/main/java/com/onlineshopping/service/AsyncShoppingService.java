@@ -0,0 +1,181 @@
+package com.onlineshopping.service;
+
+import com.onlineshopping.model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking facade over {@link ShoppingService}. Every call runs on the service executor
+ * and returns a CompletableFuture; reads that do not depend on each other are started
+ * together and joined, so a screen waits for the slowest query instead of the sum of them;
+ * a read that needs another's result is chained onto it with thenCompose.
+ * Reads the blocking service already batches into one query stay one call here rather than
+ * being split into a future per row.
+ *
+ * Results and failures are the same as the blocking method's: a null or false result is
+ * completed normally, and a thrown exception completes the future exceptionally.
+ */
+public class AsyncShoppingService implements AutoCloseable {
+    // Async settings - override with -Dservice.async.<name>=<value>; more threads than
+    // pooled connections only queue on the pool, so it defaults to the pool's maximum
+    private static final int THREADS = Integer.getInteger("service.async.threads",
+            Integer.getInteger("db.pool.maxSize", 10));
+
+    private final ShoppingService service;
+    private final Executor executor;
+    // only set when this facade created the executor and so must shut it down
+    private final ExecutorService ownedExecutor;
+
+    public AsyncShoppingService(ShoppingService service) {
+        this.service = service;
+        this.ownedExecutor = Executors.newFixedThreadPool(THREADS, new ServiceThreadFactory());
+        this.executor = ownedExecutor;
+    }
+
+    public AsyncShoppingService(ShoppingService service, Executor executor) {
+        this.service = service;
+        this.executor = executor;
+        this.ownedExecutor = null;
+    }
+
+    // Authentication
+    public CompletableFuture<Session> login(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> service.login(username, password), executor);
+    }
+
+    public CompletableFuture<RegistrationResult> registerCustomer(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> service.registerCustomer(username, password), executor);
+    }
+
+    public CompletableFuture<Boolean> updateCustomerPassword(Session session, String newPassword) {
+        return CompletableFuture.supplyAsync(() -> service.updateCustomerPassword(session, newPassword), executor);
+    }
+
+    // Catalog
+    public CompletableFuture<Page<Product>> getProductsPage(String pageToken, int pageSize) {
+        return CompletableFuture.supplyAsync(() -> service.getProductsPage(pageToken, pageSize), executor);
+    }
+
+    public CompletableFuture<Page<Product>> getProductsPageByCategory(String category, String pageToken, int pageSize) {
+        return CompletableFuture.supplyAsync(() -> service.getProductsPageByCategory(category, pageToken, pageSize), executor);
+    }
+
+    public CompletableFuture<Page<Product>> findProducts(ProductFilter filter, ProductSort sort, String pageToken, int pageSize) {
+        return CompletableFuture.supplyAsync(() -> service.findProducts(filter, sort, pageToken, pageSize), executor);
+    }
+
+    public CompletableFuture<List<CategoryCount>> getCategories() {
+        return CompletableFuture.supplyAsync(service::getCategories, executor);
+    }
+
+    public CompletableFuture<List<Product>> searchProducts(String searchTerm) {
+        return CompletableFuture.supplyAsync(() -> service.searchProducts(searchTerm), executor);
+    }
+
+    public CompletableFuture<Product> getProductById(int productId) {
+        return CompletableFuture.supplyAsync(() -> service.getProductById(productId), executor);
+    }
+
+    public CompletableFuture<List<Product>> getProductsByIds(List<Integer> productIds) {
+        return CompletableFuture.supplyAsync(() -> service.getProductsByIds(productIds), executor);
+    }
+
+    /**
+     * The landing screen in one call: the first product page, the categories and the
+     * shopper's cart are fetched at the same time, and the cart's products are read as soon
+     * as the cart arrives, while the other two may still be running.
+     */
+    public CompletableFuture<Storefront> loadStorefront(Session session, int pageSize) {
+        CompletableFuture<Page<Product>> products = getProductsPage(null, pageSize);
+        CompletableFuture<List<CategoryCount>> categories = getCategories();
+        CompletableFuture<Order> cart = getCurrentOrder(session);
+        CompletableFuture<List<Product>> cartProducts = cart.thenCompose(this::getCartProducts);
+        return CompletableFuture.allOf(products, categories, cartProducts)
+                .thenApply(done -> new Storefront(products.join(), categories.join(), cart.join(), cartProducts.join()));
+    }
+
+    // the products in the cart in one batched read; empty when there is no cart
+    public CompletableFuture<List<Product>> getCartProducts(Order cart) {
+        if (cart == null || cart.getItems().isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        List<Integer> productIds = new ArrayList<>(cart.getItems().size());
+        for (OrderItem item : cart.getItems()) {
+            productIds.add(item.getProductId());
+        }
+        return getProductsByIds(productIds);
+    }
+
+    // Cart and orders
+    public CompletableFuture<Order> getCurrentOrder(Session session) {
+        return CompletableFuture.supplyAsync(() -> service.getCurrentOrder(session), executor);
+    }
+
+    public CompletableFuture<CartUpdate> addProductToCart(Session session, int productId, int quantity) {
+        return CompletableFuture.supplyAsync(() -> service.addProductToCart(session, productId, quantity), executor);
+    }
+
+    public CompletableFuture<Boolean> removeProductFromOrder(Session session, int productId) {
+        return CompletableFuture.supplyAsync(() -> service.removeProductFromOrder(session, productId), executor);
+    }
+
+    public CompletableFuture<PlaceOrderResult> placeOrder(Session session) {
+        return CompletableFuture.supplyAsync(() -> service.placeOrder(session), executor);
+    }
+
+    public CompletableFuture<Boolean> cancelOrder(Session session) {
+        return CompletableFuture.supplyAsync(() -> service.cancelOrder(session), executor);
+    }
+
+    public CompletableFuture<Page<OrderSummary>> getCustomerOrderSummaryPage(Session session, String pageToken, int pageSize) {
+        return CompletableFuture.supplyAsync(() -> service.getCustomerOrderSummaryPage(session, pageToken, pageSize), executor);
+    }
+
+    public CompletableFuture<Order> getCustomerOrder(Session session, int orderId) {
+        return CompletableFuture.supplyAsync(() -> service.getCustomerOrder(session, orderId), executor);
+    }
+
+    // a page of order history with every order's items, read in one joined query
+    public CompletableFuture<Page<Order>> getCustomerOrderHistoryPage(Session session, String pageToken, int pageSize) {
+        return CompletableFuture.supplyAsync(() -> service.getCustomerOrderHistoryPage(session, pageToken, pageSize), executor);
+    }
+
+    // Admin
+    public CompletableFuture<Boolean> addProduct(String name, String description, double price, int stock, String category) {
+        return CompletableFuture.supplyAsync(() -> service.addProduct(name, description, price, stock, category), executor);
+    }
+
+    public CompletableFuture<Boolean> updateProduct(int productId, String name, String description, double price, int stock, String category) {
+        return CompletableFuture.supplyAsync(
+                () -> service.updateProduct(productId, name, description, price, stock, category), executor);
+    }
+
+    public CompletableFuture<Boolean> removeProduct(int productId) {
+        return CompletableFuture.supplyAsync(() -> service.removeProduct(productId), executor);
+    }
+
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private static final class ServiceThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, "shopping-async-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.onlineshopping.service;
+
+import com.onlineshopping.model.Customer;
+
+/**
+ * One shopper's login, handed out by {@link ShoppingService#login} and passed back into
+ * every customer-scoped call. The service itself keeps no per-shopper state, so any number
+ * of sessions can use one service concurrently; each call acts only on its own session's
+ * customer. The token identifies the session in the {@link SessionCache} and changes when
+ * the customer's password does.
+ */
+public class Session {
+    private final Customer customer;
+    private volatile String token;
+
+    Session(String token, Customer customer) {
+        this.token = token;
+        this.customer = customer;
+    }
+
+    public String getToken() { return token; }
+
+    // a copy, so callers cannot change whose session this is
+    public Customer getCustomer() {
+        return new Customer(customer.getId(), customer.getUsername(), null);
+    }
+
+    int getCustomerId() {
+        return customer.getId();
+    }
+
+    void rotateToken(String newToken) {
+        this.token = newToken;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Session{customerId=%d, username='%s'}", customer.getId(), customer.getUsername());
+    }
+}
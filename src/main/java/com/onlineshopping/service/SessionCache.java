@@ -0,0 +1,110 @@
+package com.onlineshopping.service;
+
+import com.onlineshopping.model.Customer;
+import com.onlineshopping.util.CacheStats;
+import com.onlineshopping.util.LruCache;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Authenticated sessions keyed by an unguessable token, so requests within a session never
+ * go back to the customers table. Sessions expire after a fixed lifetime or are evicted
+ * least-recently-used first, and all of a customer's sessions can be revoked at once.
+ */
+public class SessionCache {
+    // Session settings - override with -Dsession.<name>=<value>
+    private static final int MAX_SESSIONS = Integer.getInteger("session.maxSessions", 10_000);
+    private static final long TTL_MINUTES = Long.getLong("session.ttlMinutes", 30);
+
+    private static SessionCache instance;
+
+    private final LruCache<String, Customer> sessions = new LruCache<>(MAX_SESSIONS, TTL_MINUTES, TimeUnit.MINUTES);
+    // customer id -> tokens issued to them; may still list tokens the cache has since evicted,
+    // so it is swept once it holds twice as many tokens as the cache can
+    private final Map<Integer, Set<String>> tokensByCustomer = new HashMap<>();
+    private int indexedTokens;
+    private final SecureRandom random = new SecureRandom();
+
+    private SessionCache() {}
+
+    public static synchronized SessionCache getInstance() {
+        if (instance == null) {
+            instance = new SessionCache();
+        }
+        return instance;
+    }
+
+    // starts a session and returns its token; the password is not kept in the session
+    public synchronized String open(Customer customer) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        Set<String> tokens = tokensByCustomer.computeIfAbsent(customer.getId(), id -> new HashSet<>());
+        tokens.add(token);
+        sessions.put(token, new Customer(customer.getId(), customer.getUsername(), null));
+        if (++indexedTokens > 2 * MAX_SESSIONS) {
+            pruneTokens();
+        }
+        return token;
+    }
+
+    // the session's customer, or null if the token is unknown or has expired
+    public Customer get(String token) {
+        if (token == null) {
+            return null;
+        }
+        Customer customer = sessions.get(token);
+        return customer != null ? new Customer(customer.getId(), customer.getUsername(), null) : null;
+    }
+
+    public synchronized void close(String token) {
+        Customer customer = sessions.get(token);
+        sessions.invalidate(token);
+        if (customer != null) {
+            Set<String> tokens = tokensByCustomer.get(customer.getId());
+            if (tokens != null && tokens.remove(token)) {
+                indexedTokens--;
+                if (tokens.isEmpty()) {
+                    tokensByCustomer.remove(customer.getId());
+                }
+            }
+        }
+    }
+
+    // ends every session of the customer, e.g. after their password changes
+    public synchronized void invalidateCustomer(int customerId) {
+        Set<String> tokens = tokensByCustomer.remove(customerId);
+        if (tokens != null) {
+            indexedTokens -= tokens.size();
+            for (String token : tokens) {
+                sessions.invalidate(token);
+            }
+        }
+    }
+
+    public CacheStats getStats() {
+        return sessions.getStats();
+    }
+
+    // tokens issued (and not closed) that the index still tracks, live or not
+    public synchronized int getIndexedTokenCount() {
+        return indexedTokens;
+    }
+
+    // drops tokens the cache no longer holds, including those of customers who never log in again
+    private void pruneTokens() {
+        indexedTokens = 0;
+        tokensByCustomer.values().removeIf(tokens -> {
+            tokens.removeIf(t -> !sessions.contains(t));
+            indexedTokens += tokens.size();
+            return tokens.isEmpty();
+        });
+    }
+}
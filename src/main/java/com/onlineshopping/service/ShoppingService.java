@@ -1,63 +1,183 @@
 package com.onlineshopping.service;
 
+import com.onlineshopping.catalog.CategoryFacets;
+import com.onlineshopping.catalog.ProductAutocomplete;
+import com.onlineshopping.catalog.ProductCache;
+import com.onlineshopping.catalog.ProductCsv;
+import com.onlineshopping.catalog.ProductSearchIndex;
+import com.onlineshopping.database.DatabaseManager;
+import com.onlineshopping.database.PoolStats;
 import com.onlineshopping.dbquery.CustomerDB;
 import com.onlineshopping.dbquery.OrderDB;
 import com.onlineshopping.dbquery.ProductDB;
 import com.onlineshopping.model.*;
+import com.onlineshopping.util.CacheStats;
+import com.onlineshopping.util.FilterStats;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.LineNumberReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * Application operations for any number of concurrent shoppers. The service holds no
+ * per-shopper state: customer-scoped calls take the caller's {@link Session}, and everything
+ * shared (DB access, caches, indexes) is thread-safe, so one instance can serve every session.
+ */
 public class ShoppingService {
+    public static final int MAX_PAGE_SIZE = 100;
+    private static final int SEARCH_RESULT_LIMIT = 50;
+    private static final int SUGGESTION_LIMIT = 5;
+    // Import settings - override with -Dcatalog.import.<name>=<value>
+    private static final int IMPORT_CHUNK_SIZE = Integer.getInteger("catalog.import.chunkSize", 1000);
+    private static final int MAX_IMPORT_ERRORS = Integer.getInteger("catalog.import.maxErrors", 100);
+    // Catalog snapshot file - override with -Dcatalog.snapshot.path=<file>; empty disables it
+    private static final String SNAPSHOT_PATH = System.getProperty("catalog.snapshot.path", "catalog.snapshot");
+
     private final CustomerDB customerDB;
     private final ProductDB productDB;
     private final OrderDB orderDB;
-    private Customer currentCustomer;
+    private final ProductSearchIndex searchIndex;
+    private final CategoryFacets categoryFacets;
+    private final ProductAutocomplete autocomplete;
+    private final ProductCache productCache;
+    private final SessionCache sessions;
+    private final UsernameFilter usernameFilter;
 
     public ShoppingService() {
         this.customerDB = new CustomerDB();
         this.productDB = new ProductDB();
         this.orderDB = new OrderDB();
+        this.searchIndex = ProductSearchIndex.getInstance();
+        this.categoryFacets = CategoryFacets.getInstance();
+        this.autocomplete = ProductAutocomplete.getInstance();
+        this.productCache = ProductCache.getInstance();
+        this.sessions = SessionCache.getInstance();
+        this.usernameFilter = UsernameFilter.getInstance();
+    }
+
+    /**
+     * Loads the catalog snapshot on a background thread, then builds the search index from
+     * it, so the first listing or search does not wait on a full catalog query.
+     */
+    public void warmStartCatalog() {
+        if (SNAPSHOT_PATH.isEmpty()) {
+            return;
+        }
+        Thread loader = new Thread(() -> {
+            if (productDB.warmStartFromSnapshot(Path.of(SNAPSHOT_PATH))) {
+                searchIndex.ensureBuilt(productDB::getCatalog);
+            }
+        }, "catalog-warm-start");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public boolean saveCatalogSnapshot() {
+        if (SNAPSHOT_PATH.isEmpty()) {
+            return false;
+        }
+        return productDB.saveCatalogSnapshot(Path.of(SNAPSHOT_PATH));
     }
 
     // Authentication
-    public boolean login(String username, String password) {
-        if (customerDB.validatePassword(username, password)) {
-            currentCustomer = customerDB.getCustomerByUsername(username);
-            return true;
+    public Session login(String username, String password) {
+        Customer customer = customerDB.authenticate(username, password);
+        if (customer == null) {
+            return null;
         }
-        return false;
+        return openSession(customer);
+    }
+
+    // picks up an existing session without touching the customers table
+    public Session resumeSession(String token) {
+        Customer customer = sessions.get(token);
+        return customer != null ? new Session(token, customer) : null;
     }
 
-    public void logout() {
-        currentCustomer = null;
+    public void logout(Session session) {
+        sessions.close(session.getToken());
     }
 
-    public boolean isLoggedIn() {
-        return currentCustomer != null;
+    // false once the session has expired, been logged out or been revoked
+    public boolean isActive(Session session) {
+        return session != null && sessions.get(session.getToken()) != null;
     }
 
-    public Customer getCurrentCustomer() {
-        return currentCustomer;
+    private Session openSession(Customer customer) {
+        String token = sessions.open(customer);
+        return new Session(token, sessions.get(token));
+    }
+
+    // the session's customer id, or -1 if the session is no longer active
+    private int customerId(Session session) {
+        return isActive(session) ? session.getCustomerId() : -1;
     }
 
     // Customer Management
-    public boolean registerCustomer(String username, String password) {
-        if (customerDB.usernameExists(username)) {
-            System.out.println("Username already exists!");
-            return false;
+    public RegistrationResult registerCustomer(String username, String password) {
+        usernameFilter.ensureBuilt(customerDB::getAllUsernames);
+        // a definite miss in the filter skips the existence query; the unique key still decides
+        if (usernameFilter.mightExist(username) && customerDB.usernameExists(username)) {
+            return RegistrationResult.USERNAME_TAKEN;
         }
 
         Customer customer = new Customer(username, password);
 
-        return customerDB.addCustomer(customer);
+        if (!customerDB.addCustomer(customer)) {
+            return RegistrationResult.FAILED;
+        }
+        usernameFilter.added(username);
+        return RegistrationResult.REGISTERED;
+    }
+
+    // builds the registration username filter in the background so the first sign-up does not wait
+    public void warmStartUsernameFilter() {
+        Thread loader = new Thread(() -> usernameFilter.ensureBuilt(customerDB::getAllUsernames), "username-filter-build");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    public FilterStats getUsernameFilterStats() {
+        return usernameFilter.getStats();
     }
 
-    public boolean updateCustomerPassword(String newPassword) {
-        if (currentCustomer == null) {
+    public boolean updateCustomerPassword(Session session, String newPassword) {
+        int customerId = customerId(session);
+        if (customerId < 0) {
             return false;
         }
 
-        return customerDB.updatePassword(currentCustomer.getId(), newPassword);
+        if (!customerDB.updatePassword(customerId, newPassword)) {
+            return false;
+        }
+        // sessions opened with the old password end; this one continues under a new token
+        sessions.invalidateCustomer(customerId);
+        session.rotateToken(sessions.open(session.getCustomer()));
+        return true;
+    }
+
+    // connection pool usage and checkout wait times; null if the database was never set up
+    public PoolStats getPoolStats() {
+        return DatabaseManager.getInstance().getPoolStats();
+    }
+
+    // single-product lookups served by the product cache
+    public CacheStats getProductCacheStats() {
+        return productCache.getStats();
+    }
+
+    // reads of the cached full listing; evictions are listings discarded by bulk changes
+    public CacheStats getCatalogListingStats() {
+        return productCache.getListingStats();
     }
 
     // Product Management
@@ -65,169 +185,188 @@ public class ShoppingService {
         return productDB.getAllProducts();
     }
 
+    // keyset-paged catalog in product id order; pass null for the first page
+    public Page<Product> getProductsPage(String pageToken, int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        return productDB.getProductsPage(pageToken, pageSize);
+    }
+
+    // categories with live product counts, served from the in-memory facets
+    public List<CategoryCount> getCategories() {
+        categoryFacets.ensureBuilt(productDB::getCatalog);
+        return categoryFacets.getCategories();
+    }
+
+    public Page<Product> getProductsPageByCategory(String category, String pageToken, int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        return productDB.getProductsPageByCategory(category, pageToken, pageSize);
+    }
+
+    public Page<Product> findProducts(ProductFilter filter, ProductSort sort, String pageToken, int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (filter.getMinPrice() != null && filter.getMaxPrice() != null
+                && filter.getMinPrice() > filter.getMaxPrice()) {
+            throw new IllegalArgumentException("Minimum price must not exceed maximum price");
+        }
+
+        return productDB.findProducts(filter, sort, pageToken, pageSize);
+    }
+
+    // top product names and categories completing the prefix, answered from memory
+    public List<String> suggestProducts(String prefix) {
+        autocomplete.ensureBuilt(productDB::getCatalog, productDB::getProductPopularity);
+        return autocomplete.suggest(prefix, SUGGESTION_LIMIT);
+    }
+
+    // ranked full-text search over the in-memory index; the index is built on first use
     public List<Product> searchProducts(String searchTerm) {
-        return productDB.searchProducts(searchTerm);
+        searchIndex.ensureBuilt(productDB::getCatalog);
+        List<Integer> productIds = searchIndex.search(searchTerm, SEARCH_RESULT_LIMIT);
+        return productDB.getProductsByIds(productIds);
     }
 
     public Product getProductById(int productId) {
         return productDB.getProductById(productId);
     }
 
+    // in the order given, skipping ids that do not exist; cache misses are read in one query
+    public List<Product> getProductsByIds(List<Integer> productIds) {
+        return productDB.getProductsByIds(productIds);
+    }
+
     // Order Management
-    public Order createNewOrder() {
-        if (currentCustomer == null) {
+    public Order createNewOrder(Session session) {
+        int customerId = customerId(session);
+        if (customerId < 0) {
             return null;
         }
         
         // Check if there's already an active order
-        Order activeOrder = orderDB.getActiveOrderByCustomerId(currentCustomer.getId());
+        Order activeOrder = orderDB.getActiveOrderByCustomerId(customerId);
         if (activeOrder != null) {
             return activeOrder;
         }
         
-        Order order = new Order(currentCustomer.getId());
+        Order order = new Order(customerId);
         if (orderDB.addOrder(order)) {
             return order;
         }
         return null;
     }
 
-    public Order getCurrentOrder() {
-        if (currentCustomer == null) {
+    public Order getCurrentOrder(Session session) {
+        int customerId = customerId(session);
+        if (customerId < 0) {
             return null;
         }
 
-        return orderDB.getActiveOrderByCustomerId(currentCustomer.getId());
+        return orderDB.getActiveOrderByCustomerId(customerId);
     }
 
-    public boolean addProductToOrder(int productId, int quantity) {
-        if (currentCustomer == null) {
-            return false;
+    // one round trip per click; the returned update carries the outcome and the new cart state
+    public CartUpdate addProductToCart(Session session, int productId, int quantity) {
+        int customerId = customerId(session);
+        if (customerId < 0 || quantity <= 0) {
+            return null;
         }
+        
+        return orderDB.addProductToCart(customerId, productId, quantity);
+    }
 
-        Product product = productDB.getProductById(productId);
-        if (product == null) {
-            System.out.println("Product not found!");
+    public boolean removeProductFromOrder(Session session, int productId) {
+        int customerId = customerId(session);
+        if (customerId < 0) {
             return false;
         }
         
-        if (product.getStock() < quantity) {
-            System.out.println("Insufficient stock! Available: " + product.getStock());
-            return false;
+        return orderDB.removeProductFromCart(customerId, productId) > 0;
+    }
+
+    // the check for an active order with items and the status change are one transaction
+    public PlaceOrderResult placeOrder(Session session) {
+        int customerId = customerId(session);
+        if (customerId < 0) {
+            return PlaceOrderResult.FAILED;
         }
         
-        Order activeOrder = getCurrentOrder();
-        if (activeOrder == null) {
-            activeOrder = createNewOrder();
-            if (activeOrder == null) {
-                return false;
-            }
+        Map<Integer, Integer> quantities = orderDB.placeActiveOrder(customerId);
+        if (quantities == null) {
+            return PlaceOrderResult.FAILED;
         }
-        
-        OrderItem item = new OrderItem(productId, product.getName(), product.getPrice(), quantity);
-        
-        if (orderDB.addItemToOrder(activeOrder.getId(), item)) {
-            // Update product stock
-            productDB.updateStock(productId, product.getStock() - quantity);
-            
-            // Recalculate order total
-            Order updatedOrder = orderDB.getOrderById(activeOrder.getId());
-            double newTotal = updatedOrder.getItems().stream()
-                .mapToDouble(OrderItem::getSubtotal)
-                .sum();
-            orderDB.updateOrderTotal(activeOrder.getId(), newTotal);
-
-            return true;
+        if (quantities.isEmpty()) {
+            return PlaceOrderResult.EMPTY_CART;
         }
         
-        return false;
+        autocomplete.productsSold(quantities);
+        return PlaceOrderResult.PLACED;
     }
 
-    public boolean removeProductFromOrder(int productId) {
-        if (currentCustomer == null) {
-            return false;
-        }
-        
-        Order activeOrder = getCurrentOrder();
-        if (activeOrder == null) {
+    public boolean cancelOrder(Session session) {
+        int customerId = customerId(session);
+        if (customerId < 0) {
             return false;
         }
         
-        // Find the item to get quantity for stock restoration
-        OrderItem itemToRemove = activeOrder.getItems().stream()
-            .filter(item -> item.getProductId() == productId)
-            .findFirst()
-            .orElse(null);
-        
-        if (itemToRemove == null) {
-            return false;
-        }
-        
-        if (orderDB.removeItemFromOrder(activeOrder.getId(), productId)) {
-            // Restore product stock
-            Product product = productDB.getProductById(productId);
-            if (product != null) {
-                productDB.updateStock(productId, product.getStock() + itemToRemove.getQuantity());
-            }
-            
-            // Recalculate order total
-            Order updatedOrder = orderDB.getOrderById(activeOrder.getId());
-            double newTotal = updatedOrder.getItems().stream()
-                .mapToDouble(OrderItem::getSubtotal)
-                .sum();
-            orderDB.updateOrderTotal(activeOrder.getId(), newTotal);
+        return orderDB.cancelActiveOrder(customerId) > 0;
+    }
 
-            return true;
+    public List<Order> getCustomerOrderHistory(Session session) {
+        int customerId = customerId(session);
+        if (customerId < 0) {
+            return List.of();
         }
         
-        return false;
+        return orderDB.getOrdersByCustomerId(customerId);
     }
 
-    public boolean placeOrder() {
-        if (currentCustomer == null) {
-            return false;
+    /**
+     * Keyset-paginated order history, newest first. Pass null for the first page and
+     * the previous page's next token afterwards.
+     */
+    public Page<Order> getCustomerOrderHistoryPage(Session session, String pageToken, int pageSize) {
+        int customerId = customerId(session);
+        if (customerId < 0) {
+            return new Page<>(List.of(), null);
         }
-        
-        Order activeOrder = getCurrentOrder();
-        if (activeOrder == null || activeOrder.getItems().isEmpty()) {
-            System.out.println("No items in cart!");
-            return false;
-        }
-        
-        // can place order
-        if (orderDB.updateOrderStatus(activeOrder.getId(), Order.OrderStatus.DONE)) {
-            return true;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
         }
-        
-        return false;
+
+        return orderDB.getOrdersPageByCustomerId(customerId, pageToken, pageSize);
     }
 
-    public boolean cancelOrder() {
-        if (currentCustomer == null) {
-            return false;
-        }
-        
-        Order activeOrder = getCurrentOrder();
-        if (activeOrder == null) {
-            return false;
+    // lightweight listing for the history screen; open one order with getCustomerOrder
+    public Page<OrderSummary> getCustomerOrderSummaryPage(Session session, String pageToken, int pageSize) {
+        int customerId = customerId(session);
+        if (customerId < 0) {
+            return new Page<>(List.of(), null);
         }
-        
-        for (OrderItem item : activeOrder.getItems()) {
-            Product product = productDB.getProductById(item.getProductId());
-            if (product != null) {
-                productDB.updateStock(item.getProductId(), product.getStock() + item.getQuantity());
-            }
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE);
         }
-        
-        return orderDB.updateOrderStatus(activeOrder.getId(), Order.OrderStatus.CANCELLED);
+
+        return orderDB.getOrderSummariesPageByCustomerId(customerId, pageToken, pageSize);
     }
 
-    public List<Order> getCustomerOrderHistory() {
-        if (currentCustomer == null) {
-            return List.of();
+    public Order getCustomerOrder(Session session, int orderId) {
+        int customerId = customerId(session);
+        if (customerId < 0) {
+            return null;
         }
-        
-        return orderDB.getOrdersByCustomerId(currentCustomer.getId());
+
+        Order order = orderDB.getOrderById(orderId);
+        if (order == null || order.getCustomerId() != customerId) {
+            return null;
+        }
+        return order;
     }
 
     public boolean addProduct(String name, String description, double price, int stock, String category) {
@@ -239,6 +378,106 @@ public class ShoppingService {
         return productDB.removeProduct(productId);
     }
 
+    public BulkUpdateResult setStock(Map<Integer, Integer> stockById) {
+        for (int stock : stockById.values()) {
+            if (stock < 0) {
+                throw new IllegalArgumentException("Stock must not be negative");
+            }
+        }
+        return productDB.setStock(stockById);
+    }
+
+    public BulkUpdateResult adjustStock(Map<Integer, Integer> deltaById) {
+        return productDB.adjustStock(deltaById);
+    }
+
+    public int adjustCategoryPrices(String category, double percent) {
+        if (!(percent > -100)) {
+            throw new IllegalArgumentException("Price change must be greater than -100%");
+        }
+        return productDB.adjustCategoryPrices(category, percent);
+    }
+
+    /**
+     * Streams a CSV catalog (see {@link ProductCsv}) into the database, one transaction per
+     * chunk, calling {@code progress} after each chunk. Malformed rows are skipped and
+     * reported; a chunk the database rejects is retried row by row so only the bad rows are lost.
+     */
+    public ImportResult importProducts(Path file, Consumer<ImportResult> progress) throws IOException {
+        ImportResult result = new ImportResult(MAX_IMPORT_ERRORS);
+        List<Product> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        List<Long> chunkLines = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        
+        try (LineNumberReader reader = new LineNumberReader(Files.newBufferedReader(file, StandardCharsets.UTF_8))) {
+            while (true) {
+                long lineNumber = reader.getLineNumber() + 1;
+                List<String> record = ProductCsv.readRecord(reader);
+                if (record == null) {
+                    break;
+                }
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                if (lineNumber == 1 && record.get(0).trim().equalsIgnoreCase("product_id")) {
+                    continue;
+                }
+                
+                try {
+                    chunk.add(ProductCsv.parse(record));
+                    chunkLines.add(lineNumber);
+                } catch (IllegalArgumentException e) {
+                    result.rowFailed(lineNumber, e.getMessage());
+                }
+                
+                if (chunk.size() == IMPORT_CHUNK_SIZE) {
+                    importChunk(chunk, chunkLines, result);
+                    progress.accept(result);
+                }
+            }
+            
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, chunkLines, result);
+                progress.accept(result);
+            }
+        } finally {
+            // once per import, and also after a read failure since earlier chunks are committed
+            productDB.productsImported();
+        }
+        return result;
+    }
+
+    private void importChunk(List<Product> chunk, List<Long> chunkLines, ImportResult result) {
+        if (productDB.upsertProducts(chunk)) {
+            result.rowsImported(chunk.size());
+        } else {
+            for (int i = 0; i < chunk.size(); i++) {
+                if (productDB.upsertProducts(List.of(chunk.get(i)))) {
+                    result.rowsImported(1);
+                } else {
+                    result.rowFailed(chunkLines.get(i), "rejected by the database");
+                }
+            }
+        }
+        chunk.clear();
+        chunkLines.clear();
+    }
+
+    // writes the whole catalog as CSV straight from a database cursor; returns the row count
+    public long exportProducts(Path file) throws IOException {
+        long count = 0;
+        try (Stream<Product> products = productDB.streamProducts();
+             BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(ProductCsv.HEADER);
+            out.write('\n');
+            Iterator<Product> rows = products.iterator();
+            while (rows.hasNext()) {
+                ProductCsv.write(out, rows.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
     public boolean updateProduct(int productId, String name, String description, double price, int stock, String category) {
         Product product = productDB.getProductById(productId);
         if (product == null) {
@@ -0,0 +1,76 @@
+package com.onlineshopping.service;
+
+import com.onlineshopping.util.BloomFilter;
+import com.onlineshopping.util.FilterStats;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Bloom filter over every registered username, so registration can skip the existence
+ * query for names that are certainly free. The customers.username unique key stays the
+ * final authority; the filter only ever answers "maybe taken" or "definitely free".
+ *
+ * Usernames are case-folded because the column's collation compares them case-insensitively.
+ * Until the filter is built every name counts as "maybe taken", and once more names have been
+ * added than it was sized for it is rebuilt from the database on next use.
+ */
+public class UsernameFilter {
+    // Filter settings - override with -Dregistration.filter.<name>=<value>
+    private static final int EXPECTED_USERS = Integer.getInteger("registration.filter.expectedUsers", 100_000);
+    private static final double FALSE_POSITIVE_RATE = Double.parseDouble(
+            System.getProperty("registration.filter.falsePositiveRate", "0.01"));
+
+    private static UsernameFilter instance;
+
+    private BloomFilter filter;
+    private long capacity;
+
+    private UsernameFilter() {}
+
+    public static synchronized UsernameFilter getInstance() {
+        if (instance == null) {
+            instance = new UsernameFilter();
+        }
+        return instance;
+    }
+
+    // loader returns every username, or null if it failed
+    public synchronized void ensureBuilt(Supplier<List<String>> loader) {
+        if (filter != null && filter.getStats().getKeys() <= capacity) {
+            return;
+        }
+        List<String> usernames = loader.get();
+        if (usernames == null) {
+            return;
+        }
+        // leave room to grow so sign-up bursts do not force an early rebuild
+        capacity = Math.max(EXPECTED_USERS, 2L * usernames.size());
+        BloomFilter rebuilt = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        for (String username : usernames) {
+            rebuilt.add(normalize(username));
+        }
+        filter = rebuilt;
+    }
+
+    public synchronized boolean mightExist(String username) {
+        return filter == null || filter.mightContain(normalize(username));
+    }
+
+    // call after the username has been committed
+    public synchronized void added(String username) {
+        if (filter != null) {
+            filter.add(normalize(username));
+        }
+    }
+
+    // null until the filter has been built
+    public synchronized FilterStats getStats() {
+        return filter != null ? filter.getStats() : null;
+    }
+
+    private static String normalize(String username) {
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -1,14 +1,29 @@
 package com.onlineshopping.ui;
 
+import com.onlineshopping.catalog.ProductCsv;
+import com.onlineshopping.database.PoolStats;
 import com.onlineshopping.model.*;
+import com.onlineshopping.service.Session;
 import com.onlineshopping.service.ShoppingService;
+import com.onlineshopping.util.CacheStats;
+import com.onlineshopping.util.FilterStats;
 
+import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.function.Function;
 
 public class ConsoleUI {
+    private static final int HISTORY_PAGE_SIZE = 10;
+    private static final int BROWSE_PAGE_SIZE = 20;
+
     private final ShoppingService shoppingService;
     private final Scanner scanner;
+    private Session session;
     private boolean running;
 
     public ConsoleUI() {
@@ -18,14 +33,19 @@ public class ConsoleUI {
     }
 
     public void start() {        
+        shoppingService.warmStartCatalog();
+        shoppingService.warmStartUsernameFilter();
+        
         while (running) {
-            if (shoppingService.isLoggedIn()) {
+            if (shoppingService.isActive(session)) {
                 showMainMenu();
             } else {
                 showLoginMenu();
             }
         }
         
+        // the next launch starts from this copy of the catalog
+        shoppingService.saveCatalogSnapshot();
         scanner.close();
     }
 
@@ -50,28 +70,33 @@ public class ConsoleUI {
     }
 
     private void showMainMenu() {
-        Customer customer = shoppingService.getCurrentCustomer();
+        Customer customer = session.getCustomer();
         System.out.printf("\n=== Welcome, %s! ===\n", customer.getUsername());
         System.out.println("1. Browse Products");
-        System.out.println("2. Search Products");
-        System.out.println("3. View Cart");
-        System.out.println("4. View Order History");
-        System.out.println("5. Update Password");
-        System.out.println("6. Admin Functions");
-        System.out.println("7. Logout");
+        System.out.println("2. Browse by Category");
+        System.out.println("3. Filter & Sort Products");
+        System.out.println("4. Search Products");
+        System.out.println("5. View Cart");
+        System.out.println("6. View Order History");
+        System.out.println("7. Update Password");
+        System.out.println("8. Admin Functions");
+        System.out.println("9. Logout");
         System.out.print("Choose an option: ");
         
         String choice = scanner.nextLine().trim();
         
         switch (choice) {
             case "1" -> browseProducts();
-            case "2" -> searchProducts();
-            case "3" -> viewCart();
-            case "4" -> viewOrderHistory();
-            case "5" -> updatePassword();
-            case "6" -> showAdminMenu();
-            case "7" -> {
-                shoppingService.logout();
+            case "2" -> browseCategories();
+            case "3" -> filterProducts();
+            case "4" -> searchProducts();
+            case "5" -> viewCart();
+            case "6" -> viewOrderHistory();
+            case "7" -> updatePassword();
+            case "8" -> showAdminMenu();
+            case "9" -> {
+                shoppingService.logout(session);
+                session = null;
                 System.out.println("Logged out successfully!");
             }
             default -> System.out.println("Invalid option. Please try again.");
@@ -84,7 +109,8 @@ public class ConsoleUI {
         System.out.print("Password: ");
         String password = scanner.nextLine().trim();
         
-        if (shoppingService.login(username, password)) {
+        session = shoppingService.login(username, password);
+        if (session != null) {
             System.out.println("Login successful!");
         } else {
             System.out.println("Invalid username or password!");
@@ -100,39 +126,127 @@ public class ConsoleUI {
         System.out.print("Password: ");
         String password = scanner.nextLine().trim();
         
-        if (shoppingService.registerCustomer(username, password)) {
-            System.out.println("Registration successful! You can now login.");
-        } else {
-            System.out.println("Registration failed. Please try again.");
+        switch (shoppingService.registerCustomer(username, password)) {
+            case REGISTERED -> System.out.println("Registration successful! You can now login.");
+            case USERNAME_TAKEN -> System.out.println("Username already exists!");
+            case FAILED -> System.out.println("Registration failed. Please try again.");
         }
     }
 
     private void browseProducts() {
         System.out.println("\n=== All Products ===");
-        List<Product> products = shoppingService.getAllProducts();
+        browseProductPages(token -> shoppingService.getProductsPage(token, BROWSE_PAGE_SIZE));
+    }
+
+    private void browseCategories() {
+        List<CategoryCount> categories = shoppingService.getCategories();
         
-        if (products.isEmpty()) {
-            System.out.println("No products available.");
+        if (categories.isEmpty()) {
+            System.out.println("No categories available.");
             return;
         }
         
-        displayProducts(products);
+        System.out.println("\n=== Categories ===");
+        for (int i = 0; i < categories.size(); i++) {
+            CategoryCount category = categories.get(i);
+            System.out.printf("%3d. %-30s (%d)\n", i + 1, category.getCategory(), category.getProductCount());
+        }
         
-        System.out.print("\nEnter product ID to add to cart (or 0 to go back): ");
+        System.out.print("\nEnter category number (or 0 to go back): ");
         try {
-            int productId = Integer.parseInt(scanner.nextLine().trim());
-            if (productId > 0) {
-                addProductToCart(productId);
+            int choice = Integer.parseInt(scanner.nextLine().trim());
+            if (choice < 1 || choice > categories.size()) {
+                return;
             }
+            String category = categories.get(choice - 1).getCategory();
+            System.out.printf("\n=== %s ===\n", category);
+            browseProductPages(token -> shoppingService.getProductsPageByCategory(category, token, BROWSE_PAGE_SIZE));
         } catch (NumberFormatException e) {
-            System.out.println("Invalid product ID.");
+            System.out.println("Invalid category number.");
+        }
+    }
+
+    private void filterProducts() {
+        System.out.println("\n=== Filter & Sort Products ===");
+        try {
+            Double minPrice = readOptionalPrice("Minimum price (Enter for any): ");
+            Double maxPrice = readOptionalPrice("Maximum price (Enter for any): ");
+            System.out.print("In stock only? (y/n): ");
+            boolean inStockOnly = scanner.nextLine().trim().equalsIgnoreCase("y");
+            
+            ProductSort[] sorts = ProductSort.values();
+            for (int i = 0; i < sorts.length; i++) {
+                System.out.printf("%d. %s\n", i + 1, sorts[i].getLabel());
+            }
+            System.out.print("Sort by: ");
+            int choice = Integer.parseInt(scanner.nextLine().trim());
+            if (choice < 1 || choice > sorts.length) {
+                System.out.println("Invalid sort option.");
+                return;
+            }
+            
+            ProductFilter filter = new ProductFilter(minPrice, maxPrice, inStockOnly);
+            ProductSort sort = sorts[choice - 1];
+            browseProductPages(token -> shoppingService.findProducts(filter, sort, token, BROWSE_PAGE_SIZE));
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid number format.");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private Double readOptionalPrice(String prompt) {
+        System.out.print(prompt);
+        String input = scanner.nextLine().trim();
+        return input.isEmpty() ? null : Double.parseDouble(input);
+    }
+
+    private void browseProductPages(Function<String, Page<Product>> fetchPage) {
+        Page<Product> page = fetchPage.apply(null);
+        
+        if (page.getItems().isEmpty()) {
+            System.out.println("No products available.");
+            return;
+        }
+        
+        while (true) {
+            displayProducts(page.getItems());
+            
+            if (page.hasNext()) {
+                System.out.print("\nEnter product ID to add to cart, press Enter for more products (or 0 to go back): ");
+            } else {
+                System.out.print("\nEnter product ID to add to cart (or 0 to go back): ");
+            }
+            String input = scanner.nextLine().trim();
+            
+            if (input.isEmpty() && page.hasNext()) {
+                page = fetchPage.apply(page.getNextToken());
+                continue;
+            }
+            if (input.isEmpty()) {
+                return;
+            }
+            
+            try {
+                int productId = Integer.parseInt(input);
+                if (productId > 0) {
+                    addProductToCart(productId);
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid product ID.");
+            }
+            return;
         }
     }
 
     private void searchProducts() {
-        System.out.print("Enter search term: ");
+        System.out.print("Enter search term (end with ? for suggestions): ");
         String searchTerm = scanner.nextLine().trim();
         
+        while (searchTerm.endsWith("?")) {
+            searchTerm = pickSuggestion(searchTerm.substring(0, searchTerm.length() - 1).trim());
+        }
+        
         if (searchTerm.isEmpty()) {
             System.out.println("Search term cannot be empty.");
             return;
@@ -159,6 +273,31 @@ public class ConsoleUI {
         }
     }
 
+    // shows completions for the prefix; returns the chosen one, or whatever was typed instead
+    private String pickSuggestion(String prefix) {
+        List<String> suggestions = shoppingService.suggestProducts(prefix);
+        
+        if (suggestions.isEmpty()) {
+            System.out.println("No suggestions for \"" + prefix + "\".");
+        } else {
+            for (int i = 0; i < suggestions.size(); i++) {
+                System.out.printf("  %d. %s\n", i + 1, suggestions.get(i));
+            }
+        }
+        
+        System.out.print("Choose a suggestion or enter search term: ");
+        String input = scanner.nextLine().trim();
+        try {
+            int choice = Integer.parseInt(input);
+            if (choice >= 1 && choice <= suggestions.size()) {
+                return suggestions.get(choice - 1);
+            }
+        } catch (NumberFormatException e) {
+            // not a suggestion number, treat it as a search term
+        }
+        return input;
+    }
+
     private void displayProducts(List<Product> products) {
         System.out.printf("%-5s %-20s %-30s %-10s %-8s %-15s%n", 
                          "ID", "Name", "Description", "Price", "Stock", "Category");
@@ -198,10 +337,15 @@ public class ConsoleUI {
                 return;
             }
             
-            if (shoppingService.addProductToOrder(productId, quantity)) {
-                System.out.println("Product added to cart successfully!");
-            } else {
+            CartUpdate update = shoppingService.addProductToCart(session, productId, quantity);
+            if (update == null) {
                 System.out.println("Failed to add product to cart.");
+                return;
+            }
+            switch (update.getResult()) {
+                case ADDED -> System.out.println("Product added to cart successfully!");
+                case PRODUCT_NOT_FOUND -> System.out.println("Product not found!");
+                case INSUFFICIENT_STOCK -> System.out.println("Insufficient stock! Available: " + update.getAvailableStock());
             }
         } catch (NumberFormatException e) {
             System.out.println("Invalid quantity.");
@@ -209,7 +353,7 @@ public class ConsoleUI {
     }
 
     private void viewCart() {
-        Order currentOrder = shoppingService.getCurrentOrder();
+        Order currentOrder = shoppingService.getCurrentOrder(session);
         
         if (currentOrder == null || currentOrder.getItems().isEmpty()) {
             System.out.println("\nYour cart is empty.");
@@ -253,10 +397,10 @@ public class ConsoleUI {
     }
 
     private void placeOrder() {
-        if (shoppingService.placeOrder()) {
-            System.out.println("Order placed successfully! Thank you for your purchase.");
-        } else {
-            System.out.println("Failed to place order.");
+        switch (shoppingService.placeOrder(session)) {
+            case PLACED -> System.out.println("Order placed successfully! Thank you for your purchase.");
+            case EMPTY_CART -> System.out.println("No items in cart!");
+            case FAILED -> System.out.println("Failed to place order.");
         }
     }
 
@@ -264,7 +408,7 @@ public class ConsoleUI {
         System.out.print("Enter product ID to remove: ");
         try {
             int productId = Integer.parseInt(scanner.nextLine().trim());
-            if (shoppingService.removeProductFromOrder(productId)) {
+            if (shoppingService.removeProductFromOrder(session, productId)) {
                 System.out.println("Item removed from cart successfully!");
             } else {
                 System.out.println("Failed to remove item from cart.");
@@ -279,7 +423,7 @@ public class ConsoleUI {
         String confirmation = scanner.nextLine().trim().toLowerCase();
         
         if ("y".equals(confirmation) || "yes".equals(confirmation)) {
-            if (shoppingService.cancelOrder()) {
+            if (shoppingService.cancelOrder(session)) {
                 System.out.println("Order cancelled successfully.");
             } else {
                 System.out.println("Failed to cancel order.");
@@ -288,9 +432,9 @@ public class ConsoleUI {
     }
 
     private void viewOrderHistory() {
-        List<Order> orders = shoppingService.getCustomerOrderHistory();
+        Page<OrderSummary> page = shoppingService.getCustomerOrderSummaryPage(session, null, HISTORY_PAGE_SIZE);
         
-        if (orders.isEmpty()) {
+        if (page.getItems().isEmpty()) {
             System.out.println("\nNo order history found.");
             return;
         }
@@ -300,21 +444,71 @@ public class ConsoleUI {
                          "ID", "Date", "Status", "Total", "Items");
         System.out.println("─".repeat(60));
         
-        for (Order order : orders) {
-            System.out.printf("%-5d %-20s %-15s $%-9.2f %-8d%n",
-                             order.getId(),
-                             order.getOrderDate().toLocalDate().toString(),
-                             order.getStatus(),
-                             order.getTotalAmount(),
-                             order.getItems().size());
+        while (true) {
+            for (OrderSummary order : page.getItems()) {
+                System.out.printf("%-5d %-20s %-15s $%-9.2f %-8d%n",
+                                 order.getId(),
+                                 order.getOrderDate().toLocalDate().toString(),
+                                 order.getStatus(),
+                                 order.getTotalAmount(),
+                                 order.getItemCount());
+            }
+            
+            if (page.hasNext()) {
+                System.out.print("\nEnter order ID to view details, press Enter for more orders (or 0 to go back): ");
+            } else {
+                System.out.print("\nEnter order ID to view details (or 0 to go back): ");
+            }
+            String input = scanner.nextLine().trim();
+            
+            if (input.isEmpty() && page.hasNext()) {
+                page = shoppingService.getCustomerOrderSummaryPage(session, page.getNextToken(), HISTORY_PAGE_SIZE);
+                continue;
+            }
+            if (input.isEmpty() || "0".equals(input)) {
+                break;
+            }
+            
+            try {
+                viewOrderDetails(Integer.parseInt(input));
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid order ID.");
+            }
+            break;
+        }
+    }
+
+    private void viewOrderDetails(int orderId) {
+        Order order = shoppingService.getCustomerOrder(session, orderId);
+        if (order == null) {
+            System.out.println("Order not found!");
+            return;
+        }
+        
+        System.out.printf("\n=== Order #%d (%s, %s) ===%n",
+                         order.getId(), order.getOrderDate().toLocalDate(), order.getStatus());
+        System.out.printf("%-5s %-20s %-10s %-8s %-10s%n", 
+                         "ID", "Product", "Price", "Qty", "Subtotal");
+        System.out.println("─".repeat(55));
+        
+        for (OrderItem item : order.getItems()) {
+            System.out.printf("%-5d %-20s $%-9.2f %-8d $%-9.2f%n",
+                             item.getProductId(),
+                             truncateString(item.getProductName(), 20),
+                             item.getPrice(),
+                             item.getQuantity(),
+                             item.getSubtotal());
         }
+        
+        System.out.println("─".repeat(55));
+        System.out.printf("Total: $%.2f%n", order.getTotalAmount());
     }
 
     private void updatePassword() {
         System.out.print("Enter new password: ");
         String newPassword = scanner.nextLine().trim();
         
-        if (shoppingService.updateCustomerPassword(newPassword)) {
+        if (shoppingService.updateCustomerPassword(session, newPassword)) {
             System.out.println("Password updated successfully!");
         } else {
             System.out.println("Failed to update password.");
@@ -326,7 +520,13 @@ public class ConsoleUI {
         System.out.println("1. Add Product");
         System.out.println("2. Remove Product");
         System.out.println("3. Update Product");
-        System.out.println("4. Back to Main Menu");
+        System.out.println("4. Import Products from CSV");
+        System.out.println("5. Export Products to CSV");
+        System.out.println("6. Bulk Stock Update");
+        System.out.println("7. Adjust Category Prices");
+        System.out.println("8. Save Catalog Snapshot");
+        System.out.println("9. Show Statistics");
+        System.out.println("10. Back to Main Menu");
         System.out.print("Choose an option: ");
         
         String choice = scanner.nextLine().trim();
@@ -335,11 +535,158 @@ public class ConsoleUI {
             case "1" -> addProduct();
             case "2" -> removeProduct();
             case "3" -> updateProduct();
-            case "4" -> {} // go back to main menu
+            case "4" -> importProducts();
+            case "5" -> exportProducts();
+            case "6" -> bulkStockUpdate();
+            case "7" -> adjustCategoryPrices();
+            case "8" -> {
+                if (shoppingService.saveCatalogSnapshot()) {
+                    System.out.println("Catalog snapshot saved.");
+                } else {
+                    System.out.println("Failed to save catalog snapshot.");
+                }
+            }
+            case "9" -> showCacheStats();
+            case "10" -> {} // go back to main menu
             default -> System.out.println("Invalid option.");
         }
     }
 
+    private void showCacheStats() {
+        System.out.println("\n=== Statistics ===");
+        printCacheStats("Products", shoppingService.getProductCacheStats());
+        printCacheStats("Catalog listing", shoppingService.getCatalogListingStats());
+        printPoolStats(shoppingService.getPoolStats());
+        printFilterStats(shoppingService.getUsernameFilterStats());
+    }
+
+    private void printFilterStats(FilterStats stats) {
+        if (stats == null) {
+            System.out.println("Username filter: not built yet");
+            return;
+        }
+        System.out.printf("%-16s %d usernames, %d bits, %d hash functions, %,d bytes, false-positive rate %.2f%%%n",
+                "Username filter:", stats.getKeys(), stats.getBits(), stats.getHashFunctions(),
+                stats.getMemoryBytes(), stats.getFalsePositiveRate() * 100);
+    }
+
+    private void printPoolStats(PoolStats stats) {
+        if (stats == null) {
+            System.out.println("Connection pool: not started");
+            return;
+        }
+        System.out.printf("%-16s %d active, %d idle of %d max, %d waiting; statement cache hit ratio %.1f%%%n",
+                "Connection pool:", stats.getActive(), stats.getIdle(), stats.getMaxSize(), stats.getWaiters(),
+                stats.getStatementCacheHitRatio() * 100);
+        long[] bounds = stats.getWaitBucketsMs();
+        long[] counts = stats.getWaitCounts();
+        StringBuilder waits = new StringBuilder();
+        for (int i = 0; i < counts.length; i++) {
+            String bucket = i < bounds.length ? "<=" + bounds[i] + "ms" : ">" + bounds[i - 1] + "ms";
+            waits.append(i > 0 ? ", " : "").append(bucket).append(": ").append(counts[i]);
+        }
+        System.out.printf("%-16s %s%n", "Checkout waits:", waits);
+    }
+
+    private void printCacheStats(String name, CacheStats stats) {
+        System.out.printf("%-16s %d entries, %d hits, %d misses, hit ratio %.1f%%, %d evictions, %d expirations%n",
+                name + ":", stats.getSize(), stats.getHits(), stats.getMisses(), stats.getHitRatio() * 100,
+                stats.getEvictions(), stats.getExpirations());
+    }
+
+    private void importProducts() {
+        System.out.println("\n=== Import Products ===");
+        System.out.println("Columns: " + ProductCsv.HEADER + " (leave product_id empty for new products)");
+        System.out.print("CSV file path: ");
+        String path = scanner.nextLine().trim();
+        
+        try {
+            ImportResult result = shoppingService.importProducts(Path.of(path), progress ->
+                System.out.printf("\r%d rows imported, %d failed (%.0f rows/sec)",
+                    progress.getRowsImported(), progress.getRowsFailed(), progress.getRowsPerSecond()));
+            
+            System.out.printf("\nImport finished in %.1fs: %d rows imported, %d failed.\n",
+                result.getElapsedSeconds(), result.getRowsImported(), result.getRowsFailed());
+            for (String error : result.getErrors()) {
+                System.out.println("  " + error);
+            }
+            if (result.getRowsFailed() > result.getErrors().size()) {
+                System.out.printf("  ... and %d more\n", result.getRowsFailed() - result.getErrors().size());
+            }
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("\nImport failed: " + e.getMessage());
+        }
+    }
+
+    private void exportProducts() {
+        System.out.print("\nExport to file path: ");
+        String path = scanner.nextLine().trim();
+        
+        try {
+            Path file = Path.of(path);
+            long count = shoppingService.exportProducts(file);
+            System.out.printf("Exported %d products to %s\n", count, file);
+        } catch (IOException | InvalidPathException | IllegalStateException e) {
+            System.out.println("Export failed: " + e.getMessage());
+        }
+    }
+
+    private void bulkStockUpdate() {
+        System.out.println("\n=== Bulk Stock Update ===");
+        System.out.print("Set stock levels or apply deltas? (s/d): ");
+        boolean set = scanner.nextLine().trim().equalsIgnoreCase("s");
+        System.out.print("Entries as id:value, separated by commas (e.g. 12:40, 15:-3): ");
+        
+        try {
+            Map<Integer, Integer> values = new LinkedHashMap<>();
+            for (String entry : scanner.nextLine().split(",")) {
+                if (entry.isBlank()) {
+                    continue;
+                }
+                String[] parts = entry.split(":");
+                if (parts.length != 2) {
+                    System.out.println("Invalid entry: " + entry.trim());
+                    return;
+                }
+                values.put(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+            }
+            
+            BulkUpdateResult result = set ? shoppingService.setStock(values) : shoppingService.adjustStock(values);
+            if (result == null) {
+                System.out.println("Stock update failed. No changes were made.");
+                return;
+            }
+            System.out.printf("Updated %d products.\n", result.getUpdated());
+            if (!result.getSkippedIds().isEmpty()) {
+                System.out.println("Skipped (not found" + (set ? "" : " or not enough stock") + "): " + result.getSkippedIds());
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid number format.");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private void adjustCategoryPrices() {
+        System.out.print("\nCategory: ");
+        String category = scanner.nextLine().trim();
+        System.out.print("Price change in percent (e.g. 10 or -15): ");
+        
+        try {
+            double percent = Double.parseDouble(scanner.nextLine().trim());
+            int updated = shoppingService.adjustCategoryPrices(category, percent);
+            if (updated < 0) {
+                System.out.println("Price update failed.");
+            } else {
+                System.out.printf("Updated %d products in %s.\n", updated, category);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid number format.");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
     private void addProduct() {
         System.out.println("\n=== Add New Product ===");
         
@@ -0,0 +1,71 @@
+package com.onlineshopping.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Set membership test with no false negatives: {@link #mightContain} is always true for an
+ * added key and false for most others. Sized for an expected number of keys and a target
+ * false-positive rate; adding more keys than planned raises the rate. Not thread-safe.
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private long count;
+
+    public BloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys < 1 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("Invalid filter sizing: " + expectedKeys + " keys at " + falsePositiveRate);
+        }
+        // standard optimum: m = -n ln p / (ln 2)^2 bits and k = (m / n) ln 2 hash functions
+        long m = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.bits = new long[(int) Math.max(1, (m + 63) / 64)];
+        this.bitCount = bits.length * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeys * Math.log(2)));
+    }
+
+    public void add(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        count++;
+    }
+
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public FilterStats getStats() {
+        // expected rate for the keys added so far: (1 - e^(-kn/m))^k
+        double rate = Math.pow(1 - Math.exp(-hashCount * (double) count / bitCount), hashCount);
+        return new FilterStats(count, bitCount, hashCount, bits.length * 8L, rate);
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes, finished with a murmur mix so both halves are usable
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
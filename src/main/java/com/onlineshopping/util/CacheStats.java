@@ -0,0 +1,35 @@
+package com.onlineshopping.util;
+
+// point-in-time counters of an LruCache
+public class CacheStats {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long expirations;
+    private final int size;
+
+    public CacheStats(long hits, long misses, long evictions, long expirations, int size) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.expirations = expirations;
+        this.size = size;
+    }
+
+    public long getHits() { return hits; }
+    public long getMisses() { return misses; }
+    public long getEvictions() { return evictions; }
+    public long getExpirations() { return expirations; }
+    public int getSize() { return size; }
+
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CacheStats{size=%d, hits=%d, misses=%d, hitRatio=%.2f, evictions=%d, expirations=%d}",
+                size, hits, misses, getHitRatio(), evictions, expirations);
+    }
+}
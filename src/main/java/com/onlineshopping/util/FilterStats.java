@@ -0,0 +1,30 @@
+package com.onlineshopping.util;
+
+// point-in-time sizing of a BloomFilter
+public class FilterStats {
+    private final long keys;
+    private final long bits;
+    private final int hashFunctions;
+    private final long memoryBytes;
+    private final double falsePositiveRate;
+
+    public FilterStats(long keys, long bits, int hashFunctions, long memoryBytes, double falsePositiveRate) {
+        this.keys = keys;
+        this.bits = bits;
+        this.hashFunctions = hashFunctions;
+        this.memoryBytes = memoryBytes;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    public long getKeys() { return keys; }
+    public long getBits() { return bits; }
+    public int getHashFunctions() { return hashFunctions; }
+    public long getMemoryBytes() { return memoryBytes; }
+    public double getFalsePositiveRate() { return falsePositiveRate; }
+
+    @Override
+    public String toString() {
+        return String.format("FilterStats{keys=%d, bits=%d, hashFunctions=%d, memoryBytes=%d, falsePositiveRate=%.4f}",
+                keys, bits, hashFunctions, memoryBytes, falsePositiveRate);
+    }
+}